@@ -0,0 +1,79 @@
+package lk.esports.betting.benchmark;
+
+import lk.esports.betting.entity.Match;
+import lk.esports.betting.entity.Team;
+import lk.esports.betting.web.servlet.APIServlet;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of the /api/matches/* responses: the per-match summaries APIServlet
+ * builds from the cached listing, encoded with its Gson configuration
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiSerializationBenchmark {
+
+    @Param({"10", "100"})
+    public int matchCount;
+
+    private final Gson gson = new GsonBuilder()
+            .setDateFormat("yyyy-MM-dd HH:mm:ss")
+            .excludeFieldsWithoutExposeAnnotation()
+            .create();
+
+    private List<Match> matches;
+
+    @Setup
+    public void setUp() {
+        matches = new ArrayList<>(matchCount);
+        for (int i = 0; i < matchCount; i++) {
+            Team team1 = new Team("Team " + (2 * i), "T" + (2 * i), "LK");
+            Team team2 = new Team("Team " + (2 * i + 1), "T" + (2 * i + 1), "LK");
+            team1.setId((long) (2 * i));
+            team2.setId((long) (2 * i + 1));
+            Match match = new Match(team1, team2, LocalDateTime.now().plusHours(i));
+            match.setId((long) i);
+            match.updateOdds(new BigDecimal("1.85"), new BigDecimal("2.05"));
+            matches.add(match);
+        }
+    }
+
+    @Benchmark
+    public String serializeMatchListing() {
+        List<Map<String, Object>> summaries = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            summaries.add(APIServlet.matchSummary(match));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("matches", summaries);
+        response.put("count", summaries.size());
+        return gson.toJson(response);
+    }
+}
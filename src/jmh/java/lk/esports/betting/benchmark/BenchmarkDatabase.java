@@ -0,0 +1,139 @@
+package lk.esports.betting.benchmark;
+
+import lk.esports.betting.ejb.MatchServiceBean;
+import lk.esports.betting.engine.MatchPoolAggregator;
+import lk.esports.betting.entity.Match;
+import lk.esports.betting.entity.User;
+import lk.esports.betting.utils.DatabaseUtil;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Embedded H2 database (MySQL mode) shared by the benchmarks of one forked JVM.
+ * DatabaseUtil reads its connection settings when the class is initialised, so
+ * the system properties are set before anything touches it.
+ */
+final class BenchmarkDatabase {
+
+    static {
+        System.setProperty("esports.db.url",
+                "jdbc:h2:mem:esports_bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        System.setProperty("esports.db.user", "sa");
+        System.setProperty("esports.db.password", "");
+        System.setProperty("esports.db.driver", "org.h2.Driver");
+        System.setProperty("esports.db.dialect", "org.hibernate.dialect.H2Dialect");
+    }
+
+    // Already hashed so seeding users does not pay for BCrypt
+    private static final String PASSWORD_HASH = "$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW";
+
+    private static Long team1Id;
+    private static Long team2Id;
+    private static int sequence = 0;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Create the schema and the two teams every match is played between
+     */
+    static synchronized void start() {
+        if (team1Id != null) {
+            return;
+        }
+        MatchServiceBean matchService = new MatchServiceBean();
+        team1Id = matchService.createTeam("Bench Alpha", "BCHA", "LK", null, null).getId();
+        team2Id = matchService.createTeam("Bench Bravo", "BCHB", "LK", null, null).getId();
+        MatchPoolAggregator.getInstance().rebuild();
+    }
+
+    static Long getTeam1Id() {
+        return team1Id;
+    }
+
+    static Long getTeam2Id() {
+        return team2Id;
+    }
+
+    /**
+     * Create a bettable match a day in the future
+     */
+    static Match createMatch() {
+        return new MatchServiceBean().createMatch(null, team1Id, team2Id,
+                LocalDateTime.now().plusDays(1), Match.MatchType.BO3);
+    }
+
+    /**
+     * Create active users with the given wallet balance and return their ids
+     */
+    static synchronized Long[] createUsers(int count, BigDecimal balance) {
+        Long[] ids = new Long[count];
+        EntityManager entityManager = DatabaseUtil.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            for (int i = 0; i < count; i++) {
+                int n = ++sequence;
+                User user = new User("bench" + n + "@example.com", "bench" + n, PASSWORD_HASH, "Bench User " + n);
+                user.setWalletBalance(balance);
+                user.setIsActive(true);
+                entityManager.persist(user);
+                ids[i] = user.getId();
+                if (i % 500 == 499) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.getTransaction().commit();
+            return ids;
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Insert pending bets on the match directly, alternating the selected team
+     */
+    static void insertPendingBets(Long matchId, Long[] userIds, BigDecimal amount, BigDecimal odds) {
+        EntityManager entityManager = DatabaseUtil.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO bets (user_id, match_id, selected_team_id, bet_amount, odds_at_bet, " +
+                                "potential_winnings, status, bet_placed_at) VALUES (?, ?, ?, ?, ?, ?, 'PENDING', ?)")) {
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    BigDecimal winnings = amount.multiply(odds);
+                    for (int i = 0; i < userIds.length; i++) {
+                        insert.setLong(1, userIds[i]);
+                        insert.setLong(2, matchId);
+                        insert.setLong(3, i % 2 == 0 ? team1Id : team2Id);
+                        insert.setBigDecimal(4, amount);
+                        insert.setBigDecimal(5, odds);
+                        insert.setBigDecimal(6, winnings);
+                        insert.setTimestamp(7, now);
+                        insert.addBatch();
+                        if (i % 1000 == 999) {
+                            insert.executeBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+            });
+            entityManager.getTransaction().commit();
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+    }
+}
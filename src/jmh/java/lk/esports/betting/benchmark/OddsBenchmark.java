@@ -0,0 +1,76 @@
+package lk.esports.betting.benchmark;
+
+import lk.esports.betting.ejb.BettingServiceBean;
+import lk.esports.betting.engine.MatchPoolAggregator;
+import lk.esports.betting.entity.Bet;
+import lk.esports.betting.entity.Match;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Odds and payout calculations on a match with a populated pool
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OddsBenchmark {
+
+    private static final BigDecimal STAKE = new BigDecimal("25.00");
+
+    private BettingServiceBean bettingService;
+    private Long matchId;
+    private Long teamId;
+    private Bet bet;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase.start();
+        Match match = BenchmarkDatabase.createMatch();
+        matchId = match.getId();
+        teamId = BenchmarkDatabase.getTeam1Id();
+
+        Long[] users = BenchmarkDatabase.createUsers(1000, new BigDecimal("1000.00"));
+        BenchmarkDatabase.insertPendingBets(matchId, users, STAKE, new BigDecimal("1.90"));
+        MatchPoolAggregator.getInstance().rebuild();
+
+        bettingService = new BettingServiceBean();
+        bet = new Bet();
+        bet.setOddsAtBet(new BigDecimal("1.85"));
+        bet.setBetAmount(STAKE);
+    }
+
+    @Benchmark
+    public BigDecimal calculateCurrentOdds() {
+        return bettingService.calculateCurrentOdds(matchId, teamId);
+    }
+
+    @Benchmark
+    public BigDecimal calculatePotentialWinnings() {
+        return bettingService.calculatePotentialWinnings(matchId, teamId, STAKE);
+    }
+
+    @Benchmark
+    public BigDecimal calculateBookmakerMargin() {
+        return bettingService.calculateBookmakerMargin(matchId);
+    }
+
+    @Benchmark
+    public BigDecimal betCalculatePotentialWinnings() {
+        return bet.calculatePotentialWinnings();
+    }
+}
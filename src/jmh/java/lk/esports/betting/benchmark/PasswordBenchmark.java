@@ -0,0 +1,41 @@
+package lk.esports.betting.benchmark;
+
+import lk.esports.betting.utils.PasswordUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password policy checks run on every registration and password change
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordBenchmark {
+
+    @Param({"short1", "Str0ng!Passw0rd", "a-much-longer-Passphrase-with-99-digits!"})
+    public String password;
+
+    @Benchmark
+    public PasswordUtil.PasswordValidationResult validatePassword() {
+        return PasswordUtil.validatePassword(password);
+    }
+
+    @Benchmark
+    public int calculatePasswordStrength() {
+        return PasswordUtil.calculatePasswordStrength(password);
+    }
+}
@@ -0,0 +1,74 @@
+package lk.esports.betting.benchmark;
+
+import lk.esports.betting.ejb.BettingServiceBean;
+import lk.esports.betting.entity.Bet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end bet placement (validation, wallet debit, bet and transaction inserts)
+ * against the embedded database. A user may bet once per match, so every pass over
+ * the user pool moves on to a fresh match. The matches an iteration uses are created
+ * in its setup, outside the measured time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlacementBenchmark {
+
+    private static final BigDecimal STAKE = new BigDecimal("10.00");
+    private static final int USERS = 5000;
+    private static final int MATCHES_PER_ITERATION = 40;
+
+    private BettingServiceBean bettingService;
+    private Long[] users;
+    private Long[] matches;
+    private int nextMatch;
+    private int nextUser;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase.start();
+        users = BenchmarkDatabase.createUsers(USERS, new BigDecimal("1000000.00"));
+        bettingService = new BettingServiceBean();
+    }
+
+    @Setup(Level.Iteration)
+    public void createMatches() {
+        matches = new Long[MATCHES_PER_ITERATION];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = BenchmarkDatabase.createMatch().getId();
+        }
+        nextMatch = 0;
+        nextUser = 0;
+    }
+
+    @Benchmark
+    public Bet placeBet() {
+        if (nextUser == users.length) {
+            if (++nextMatch == matches.length) {
+                throw new IllegalStateException("An iteration placed more than " +
+                        USERS * MATCHES_PER_ITERATION + " bets; raise MATCHES_PER_ITERATION");
+            }
+            nextUser = 0;
+        }
+        Long teamId = nextUser % 2 == 0 ? BenchmarkDatabase.getTeam1Id() : BenchmarkDatabase.getTeam2Id();
+        return bettingService.placeBet(users[nextUser++], matches[nextMatch], teamId, STAKE);
+    }
+}
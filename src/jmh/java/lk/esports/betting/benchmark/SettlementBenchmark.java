@@ -0,0 +1,57 @@
+package lk.esports.betting.benchmark;
+
+import lk.esports.betting.ejb.MatchServiceBean;
+import lk.esports.betting.engine.SettlementEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settlement of one completed match. Each iteration seeds a new match with
+ * betCount pending bets, then times settling all of them.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SettlementBenchmark {
+
+    @Param({"1000", "10000"})
+    public int betCount;
+
+    private Long[] users;
+    private Long matchId;
+
+    @Setup(Level.Trial)
+    public void createUsers() {
+        BenchmarkDatabase.start();
+        users = BenchmarkDatabase.createUsers(betCount, new BigDecimal("100.00"));
+    }
+
+    @Setup(Level.Iteration)
+    public void seedMatch() {
+        matchId = BenchmarkDatabase.createMatch().getId();
+        BenchmarkDatabase.insertPendingBets(matchId, users, new BigDecimal("10.00"), new BigDecimal("1.90"));
+        new MatchServiceBean().completeMatch(matchId, BenchmarkDatabase.getTeam1Id(), 2, 1);
+    }
+
+    @Benchmark
+    public SettlementEngine.SettlementResult settleMatch() {
+        return SettlementEngine.getInstance().settleMatch(matchId);
+    }
+}
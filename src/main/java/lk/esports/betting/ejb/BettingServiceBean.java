@@ -3,13 +3,31 @@ package lk.esports.betting.ejb;
 import lk.esports.betting.ejb.local.BettingService;
 import lk.esports.betting.ejb.local.UserService;
 import lk.esports.betting.ejb.local.MatchService;
+import lk.esports.betting.engine.BetPlacementMetrics;
+import lk.esports.betting.engine.BetPlacementMetrics.Stage;
+import lk.esports.betting.engine.IdempotencyKeyMismatchException;
+import lk.esports.betting.engine.IdempotencyStore;
+import lk.esports.betting.engine.MatchEventFeed;
+import lk.esports.betting.engine.MatchListingCache;
+import lk.esports.betting.engine.MatchPoolAggregator;
+import lk.esports.betting.engine.OddsEngine;
+import lk.esports.betting.engine.RiskManager;
+import lk.esports.betting.engine.SettlementEngine;
+import lk.esports.betting.engine.SettlementScheduler;
 import lk.esports.betting.entity.Bet;
 import lk.esports.betting.entity.Match;
 import lk.esports.betting.entity.User;
 import lk.esports.betting.entity.Team;
 import lk.esports.betting.entity.Transaction;
+import lk.esports.betting.entity.WalletLedgerEntry;
+import lk.esports.betting.utils.CursorPage;
 import lk.esports.betting.utils.DatabaseUtil;
 import lk.esports.betting.utils.EJBServiceLocator;
+import lk.esports.betting.utils.KeysetCursor;
+import lk.esports.betting.utils.Money;
+import lk.esports.betting.utils.Odds;
+import lk.esports.betting.wallet.BalanceCache;
+import lk.esports.betting.wallet.WalletEngine;
 
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
@@ -73,38 +91,127 @@ public class BettingServiceBean implements BettingService {
 
     @Override
     public Bet placeBet(Long userId, Long matchId, Long selectedTeamId, BigDecimal betAmount) {
-        EntityManager entityManager = null;
-        boolean useLocalTransaction = false;
+        return placeBet(userId, matchId, selectedTeamId, betAmount, null);
+    }
 
-        try {
-            if (!validateBet(userId, matchId, selectedTeamId, betAmount)) {
-                throw new IllegalArgumentException("Invalid bet parameters");
+    @Override
+    public Bet placeBet(Long userId, Long matchId, Long selectedTeamId, BigDecimal betAmount, String idempotencyKey) {
+        return placeBet(userId, matchId, selectedTeamId, betAmount, idempotencyKey, null);
+    }
+
+    /**
+     * Place a bet at most once per idempotency key. A repeated key returns the bet the
+     * first request created, marked as replayed, without validating or debiting again.
+     * Throws IllegalStateException while the first request is still in flight, and
+     * IdempotencyKeyMismatchException when the key was used for a different bet.
+     * acceptedOdds, when given, are the lowest odds the bettor agreed to; a bet whose
+     * odds have moved below them is rejected.
+     */
+    @Override
+    public Bet placeBet(Long userId, Long matchId, Long selectedTeamId, BigDecimal betAmount, String idempotencyKey,
+                        BigDecimal acceptedOdds) {
+        if (idempotencyKey == null) {
+            return createBet(userId, matchId, selectedTeamId, betAmount, null, acceptedOdds);
+        }
+
+        IdempotencyStore store = IdempotencyStore.getInstance();
+        IdempotencyStore.Claim claim = store.claim(userId, idempotencyKey);
+        if (claim.getState() == IdempotencyStore.ClaimState.COMPLETED) {
+            Bet original = findBetById(claim.getBetId());
+            if (original != null) {
+                IdempotencyKeyMismatchException.requireSameBet(original, matchId, selectedTeamId, betAmount);
+                original.markReplayed();
+                return original;
             }
+            throw new IllegalStateException("The original bet for this request could not be loaded");
+        }
+        if (claim.getState() == IdempotencyStore.ClaimState.IN_PROGRESS) {
+            throw new IllegalStateException("A bet with this idempotency key is still being processed");
+        }
 
-            UserService userSvc = getUserService();
-            MatchService matchSvc = getMatchService();
+        Long betId = null;
+        try {
+            // The store may have lost the key (restart, eviction, expiry or another node); the bets table has not
+            Bet original = findBetByIdempotencyKey(userId, idempotencyKey);
+            if (original != null) {
+                IdempotencyKeyMismatchException.requireSameBet(original, matchId, selectedTeamId, betAmount);
+                betId = original.getId();
+                original.markReplayed();
+                return original;
+            }
 
-            User user = userSvc.findUserById(userId);
-            Match match = matchSvc.findMatchById(matchId);
-            Team selectedTeam = matchSvc.findTeamById(selectedTeamId);
+            Bet bet = createBet(userId, matchId, selectedTeamId, betAmount, idempotencyKey, acceptedOdds);
+            betId = bet.getId();
+            return bet;
+        } catch (RuntimeException e) {
+            // A concurrent request with the same key committed first;
+            // the unique index rolled this placement back, debit included
+            if (!isConstraintViolation(e)) {
+                throw e;
+            }
+            Bet original = findBetByIdempotencyKey(userId, idempotencyKey);
+            if (original == null) {
+                throw e;
+            }
+            IdempotencyKeyMismatchException.requireSameBet(original, matchId, selectedTeamId, betAmount);
+            betId = original.getId();
+            original.markReplayed();
+            return original;
+        } finally {
+            if (betId != null) {
+                store.complete(userId, idempotencyKey, betId);
+            } else {
+                store.release(userId, idempotencyKey);
+            }
+        }
+    }
 
-            if (user == null || match == null || selectedTeam == null) {
-                throw new IllegalArgumentException("Invalid entities");
+    private static boolean isConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof org.hibernate.exception.ConstraintViolationException
+                    || cause instanceof java.sql.SQLIntegrityConstraintViolationException) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            // Check if user has already bet on this match
-            if (hasUserBetOnMatch(userId, matchId)) {
-                throw new IllegalArgumentException("User has already placed a bet on this match");
+    @Override
+    public Bet findBetByIdempotencyKey(Long userId, String idempotencyKey) {
+        EntityManager entityManager = null;
+        try {
+            entityManager = getEntityManager();
+            List<Bet> bets = entityManager.createQuery(
+                            "SELECT b FROM Bet b WHERE b.user.id = :userId AND b.idempotencyKey = :key", Bet.class)
+                    .setParameter("userId", userId)
+                    .setParameter("key", idempotencyKey)
+                    .getResultList();
+            return bets.isEmpty() ? null : bets.get(0);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error finding bet by idempotency key for user: " + userId, e);
+            return null;
+        } finally {
+            if (em == null && entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
             }
+        }
+    }
 
-            // Get current odds for the selected team
-            BigDecimal currentOdds = match.getOddsForTeam(selectedTeam);
+    private Bet createBet(Long userId, Long matchId, Long selectedTeamId, BigDecimal betAmount, String idempotencyKey,
+                          BigDecimal acceptedOdds) {
+        EntityManager entityManager = null;
+        boolean useLocalTransaction = false;
+        RiskManager.Reservation reservation = null;
+        long started = System.nanoTime();
+        long stageStart = started;
 
-            // Deduct funds from user wallet
-            if (!userSvc.deductFunds(userId, betAmount, "Bet placed on " + match.getMatchTitle())) {
-                throw new IllegalArgumentException("Insufficient funds");
+        try {
+            if (userId == null || matchId == null || selectedTeamId == null || !isValidBetAmount(betAmount)) {
+                throw new IllegalArgumentException("Invalid bet parameters");
             }
 
+            // The pools must be loaded before this bet can commit, or a load could miss it
+            MatchPoolAggregator.getInstance().ensureLoaded();
             entityManager = getEntityManager();
 
             if (em == null) {
@@ -114,29 +221,90 @@ public class BettingServiceBean implements BettingService {
                 }
             }
 
-            // Create bet
-            Bet bet = new Bet(user, match, selectedTeam, betAmount, currentOdds);
+            // Load the match once (the teams come along with it); the user is never hydrated
+            Match match = entityManager.find(Match.class, matchId);
+            stageStart = BetPlacementMetrics.record(Stage.LOAD, stageStart);
+
+            if (match == null) {
+                throw new IllegalArgumentException("Invalid entities");
+            }
+            if (!match.canPlaceBet()) {
+                throw new IllegalArgumentException("Betting is closed for this match");
+            }
+
+            Team selectedTeam;
+            if (selectedTeamId.equals(match.getTeam1().getId())) {
+                selectedTeam = match.getTeam1();
+            } else if (selectedTeamId.equals(match.getTeam2().getId())) {
+                selectedTeam = match.getTeam2();
+            } else {
+                throw new IllegalArgumentException("Selected team is not playing in this match");
+            }
+
+            // Check if user has already bet on this match
+            TypedQuery<Long> existingBets = entityManager.createQuery(
+                    "SELECT COUNT(b) FROM Bet b WHERE b.user.id = :userId AND b.match.id = :matchId", Long.class);
+            existingBets.setParameter("userId", userId);
+            existingBets.setParameter("matchId", matchId);
+            if (existingBets.getSingleResult() > 0) {
+                throw new IllegalArgumentException("User has already placed a bet on this match");
+            }
+            stageStart = BetPlacementMetrics.record(Stage.VALIDATE, stageStart);
+
+            // Rejects, or in REPRICE mode lowers the odds of, a bet the match's liability cannot take
+            reservation = RiskManager.getInstance().reserve(match, selectedTeamId, betAmount,
+                    match.getOddsForTeam(selectedTeam), acceptedOdds);
+
+            // Conditional debit: succeeds only for an active account with enough funds
+            if (!WalletEngine.debit(entityManager, userId, betAmount, WalletLedgerEntry.EntryType.BET_STAKE)) {
+                throw new IllegalArgumentException(describeDebitFailure(entityManager, userId));
+            }
+            stageStart = BetPlacementMetrics.record(Stage.DEBIT, stageStart);
+
+            User user = entityManager.getReference(User.class, userId);
+
+            Bet bet = new Bet(user, match, selectedTeam, betAmount, reservation.getOdds());
+            bet.setIdempotencyKey(idempotencyKey);
             entityManager.persist(bet);
+            stageStart = BetPlacementMetrics.record(Stage.INSERT_BET, stageStart);
+
+            Transaction transaction = new Transaction(user, Transaction.TransactionType.BET_PLACED,
+                    betAmount, "Bet placed on " + match.getMatchTitle(), bet.getId());
+            entityManager.persist(transaction);
+            stageStart = BetPlacementMetrics.record(Stage.INSERT_TRANSACTION, stageStart);
 
             if (useLocalTransaction) {
                 entityManager.getTransaction().commit();
             } else {
                 entityManager.flush();
             }
+            BetPlacementMetrics.record(Stage.COMMIT, stageStart);
+            BetPlacementMetrics.recordPlaced(started);
+            BalanceCache.getInstance().invalidate(userId);
 
-            // Create transaction record
-            userSvc.createTransaction(userId, Transaction.TransactionType.BET_PLACED,
-                    betAmount, "Bet placed on " + match.getMatchTitle(), bet.getId());
+            MatchPoolAggregator.getInstance().addBet(match, selectedTeamId, betAmount);
+            MatchEventFeed.getInstance().poolChanged(matchId);
+            OddsEngine.getInstance().markDirty(matchId);
 
-            logger.info("Bet placed: User " + user.getUsername() + " bet $" + betAmount +
+            logger.info("Bet placed: User " + userId + " bet $" + betAmount +
                     " on " + selectedTeam.getTeamName() + " for match " + match.getMatchTitle());
 
             return bet;
 
+        } catch (IllegalArgumentException e) {
+            if (useLocalTransaction && entityManager != null && entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            RiskManager.getInstance().release(reservation);
+            BetPlacementMetrics.recordRejected();
+            logger.info("Bet rejected for user " + userId + " on match " + matchId + ": " + e.getMessage());
+            throw e;
         } catch (Exception e) {
             if (useLocalTransaction && entityManager != null && entityManager.getTransaction().isActive()) {
                 entityManager.getTransaction().rollback();
             }
+            RiskManager.getInstance().release(reservation);
+            BetPlacementMetrics.recordFailed();
             logger.log(Level.SEVERE, "Error placing bet", e);
             throw new RuntimeException("Failed to place bet: " + e.getMessage(), e);
         } finally {
@@ -146,6 +314,18 @@ public class BettingServiceBean implements BettingService {
         }
     }
 
+    // Only runs on the rejection path, so successful placements never read the user row
+    private String describeDebitFailure(EntityManager entityManager, Long userId) {
+        List<Boolean> active = entityManager.createQuery(
+                        "SELECT u.isActive FROM User u WHERE u.id = :userId", Boolean.class)
+                .setParameter("userId", userId)
+                .getResultList();
+        if (active.isEmpty()) {
+            return "User not found";
+        }
+        return Boolean.TRUE.equals(active.get(0)) ? "Insufficient funds" : "User account is not active";
+    }
+
     @Override
     public boolean validateBet(Long userId, Long matchId, Long selectedTeamId, BigDecimal betAmount) {
         try {
@@ -195,8 +375,8 @@ public class BettingServiceBean implements BettingService {
             Team selectedTeam = matchSvc.findTeamById(selectedTeamId);
 
             if (match != null && selectedTeam != null && betAmount != null) {
-                BigDecimal odds = match.getOddsForTeam(selectedTeam);
-                return betAmount.multiply(odds).setScale(2, BigDecimal.ROUND_HALF_UP);
+                int odds = Odds.fromBigDecimal(match.getOddsForTeam(selectedTeam));
+                return Money.toBigDecimal(Money.multiplyByOdds(Money.toCents(betAmount), odds));
             }
             return BigDecimal.ZERO;
         } catch (Exception e) {
@@ -337,30 +517,75 @@ public class BettingServiceBean implements BettingService {
     }
 
     @Override
-    public void processBetResults(Long matchId) {
-        try {
-            MatchService matchSvc = getMatchService();
-            Match match = matchSvc.findMatchById(matchId);
-            if (match == null || !match.isCompleted()) {
-                logger.warning("Cannot process bets for incomplete match: " + matchId);
-                return;
-            }
+    public CursorPage<Bet> getUserBetsPage(Long userId, Bet.BetStatus status, String cursor, int limit) {
+        if (userId == null) {
+            return CursorPage.empty();
+        }
+        return findBetsPage(userId, status, cursor, limit);
+    }
 
-            List<Bet> matchBets = getMatchBets(matchId);
-            Team winnerTeam = match.getWinnerTeam();
+    /**
+     * Keyset page over (betPlacedAt DESC, id DESC). Reads only limit + 1 rows from the
+     * (user_id, bet_placed_at, id) index however deep the page is, instead of an
+     * OFFSET scan or loading the full history.
+     */
+    private CursorPage<Bet> findBetsPage(Long userId, Bet.BetStatus status, String cursor, int limit) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = CursorPage.clampLimit(limit);
+
+        StringBuilder jpql = new StringBuilder(
+                "SELECT b FROM Bet b " +
+                        "JOIN FETCH b.match m " +
+                        "LEFT JOIN FETCH m.tournament " +
+                        "JOIN FETCH m.team1 " +
+                        "JOIN FETCH m.team2 " +
+                        "LEFT JOIN FETCH m.winnerTeam " +
+                        "JOIN FETCH b.selectedTeam " +
+                        "WHERE 1 = 1");
+        if (userId != null) {
+            jpql.append(" AND b.user.id = :userId");
+        }
+        if (status != null) {
+            jpql.append(" AND b.status = :status");
+        }
+        if (after != null) {
+            jpql.append(" AND (b.betPlacedAt < :afterTime OR (b.betPlacedAt = :afterTime AND b.id < :afterId))");
+        }
+        jpql.append(" ORDER BY b.betPlacedAt DESC, b.id DESC");
 
-            for (Bet bet : matchBets) {
-                if (bet.isPending()) {
-                    if (bet.getSelectedTeam().equals(winnerTeam)) {
-                        markBetAsWon(bet.getId());
-                    } else {
-                        markBetAsLost(bet.getId());
-                    }
-                }
+        EntityManager entityManager = null;
+        try {
+            entityManager = getEntityManager();
+            TypedQuery<Bet> query = entityManager.createQuery(jpql.toString(), Bet.class);
+            if (userId != null) {
+                query.setParameter("userId", userId);
+            }
+            if (status != null) {
+                query.setParameter("status", status);
             }
+            if (after != null) {
+                query.setParameter("afterTime", after.getTimestamp());
+                query.setParameter("afterId", after.getId());
+            }
+            query.setMaxResults(pageSize + 1);
 
-            logger.info("Processed " + matchBets.size() + " bets for match: " + match.getMatchTitle());
+            return CursorPage.of(query.getResultList(), pageSize,
+                    bet -> new KeysetCursor(bet.getBetPlacedAt(), bet.getId()));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error getting bets page for user: " + userId, e);
+            return CursorPage.empty();
+        } finally {
+            if (em == null && entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
 
+    @Override
+    public void processBetResults(Long matchId) {
+        try {
+            // Set-based, chunked and resumable; see SettlementEngine
+            SettlementEngine.getInstance().settleMatch(matchId);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error processing bet results for match: " + matchId, e);
             throw new RuntimeException("Failed to process bet results", e);
@@ -461,6 +686,7 @@ public class BettingServiceBean implements BettingService {
         boolean useLocalTransaction = false;
 
         try {
+            MatchPoolAggregator.getInstance().ensureLoaded();
             entityManager = getEntityManager();
 
             if (em == null) {
@@ -471,13 +697,29 @@ public class BettingServiceBean implements BettingService {
             }
 
             Bet bet = entityManager.find(Bet.class, betId);
-            if (bet != null && bet.canBeCancelled()) {
-                bet.markAsCancelled();
-                entityManager.merge(bet);
+            if (bet == null || !bet.canBeCancelled()) {
+                return;
+            }
 
-                if (useLocalTransaction) {
-                    entityManager.getTransaction().commit();
-                }
+            // Only the cancel that moves the bet out of PENDING goes on to refund it
+            int cancelled = entityManager.createQuery(
+                            "UPDATE Bet b SET b.status = :cancelled, b.resultProcessedAt = :now " +
+                                    "WHERE b.id = :betId AND b.status = :pending")
+                    .setParameter("cancelled", Bet.BetStatus.CANCELLED)
+                    .setParameter("now", LocalDateTime.now())
+                    .setParameter("betId", betId)
+                    .setParameter("pending", Bet.BetStatus.PENDING)
+                    .executeUpdate();
+
+            if (useLocalTransaction) {
+                entityManager.getTransaction().commit();
+            }
+
+            if (cancelled == 1) {
+                MatchPoolAggregator.getInstance().removeBet(bet);
+                RiskManager.getInstance().releaseBet(bet);
+                MatchEventFeed.getInstance().poolChanged(bet.getMatch().getId());
+                OddsEngine.getInstance().markDirty(bet.getMatch().getId());
 
                 // Refund bet amount to user
                 refundBet(betId);
@@ -550,103 +792,27 @@ public class BettingServiceBean implements BettingService {
 
     @Override
     public BigDecimal getTotalBetAmount(Long matchId) {
-        EntityManager entityManager = null;
-        try {
-            entityManager = getEntityManager();
-            TypedQuery<BigDecimal> query = entityManager.createQuery(
-                    "SELECT COALESCE(SUM(b.betAmount), 0) FROM Bet b WHERE b.match.id = :matchId", BigDecimal.class);
-            query.setParameter("matchId", matchId);
-            BigDecimal result = query.getSingleResult();
-            return result != null ? result : BigDecimal.ZERO;
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error getting total bet amount for match: " + matchId, e);
-            return BigDecimal.ZERO;
-        } finally {
-            if (em == null && entityManager != null && entityManager.isOpen()) {
-                entityManager.close();
-            }
-        }
+        return Money.toBigDecimal(MatchPoolAggregator.getInstance().getTotalCents(matchId));
     }
 
     @Override
     public BigDecimal getTeamBetAmount(Long matchId, Long teamId) {
-        EntityManager entityManager = null;
-        try {
-            entityManager = getEntityManager();
-            TypedQuery<BigDecimal> query = entityManager.createQuery(
-                    "SELECT COALESCE(SUM(b.betAmount), 0) FROM Bet b WHERE b.match.id = :matchId AND b.selectedTeam.id = :teamId",
-                    BigDecimal.class);
-            query.setParameter("matchId", matchId);
-            query.setParameter("teamId", teamId);
-            BigDecimal result = query.getSingleResult();
-            return result != null ? result : BigDecimal.ZERO;
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error getting team bet amount", e);
-            return BigDecimal.ZERO;
-        } finally {
-            if (em == null && entityManager != null && entityManager.isOpen()) {
-                entityManager.close();
-            }
-        }
+        return Money.toBigDecimal(MatchPoolAggregator.getInstance().getTeamCents(matchId, teamId));
     }
 
     @Override
     public int getTotalBetsCount(Long matchId) {
-        EntityManager entityManager = null;
-        try {
-            entityManager = getEntityManager();
-            TypedQuery<Long> query = entityManager.createQuery(
-                    "SELECT COUNT(b) FROM Bet b WHERE b.match.id = :matchId", Long.class);
-            query.setParameter("matchId", matchId);
-            return query.getSingleResult().intValue();
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error getting total bets count for match: " + matchId, e);
-            return 0;
-        } finally {
-            if (em == null && entityManager != null && entityManager.isOpen()) {
-                entityManager.close();
-            }
-        }
+        return MatchPoolAggregator.getInstance().getTotalCount(matchId);
     }
 
     @Override
     public int getTeamBetsCount(Long matchId, Long teamId) {
-        EntityManager entityManager = null;
-        try {
-            entityManager = getEntityManager();
-            TypedQuery<Long> query = entityManager.createQuery(
-                    "SELECT COUNT(b) FROM Bet b WHERE b.match.id = :matchId AND b.selectedTeam.id = :teamId", Long.class);
-            query.setParameter("matchId", matchId);
-            query.setParameter("teamId", teamId);
-            return query.getSingleResult().intValue();
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error getting team bets count", e);
-            return 0;
-        } finally {
-            if (em == null && entityManager != null && entityManager.isOpen()) {
-                entityManager.close();
-            }
-        }
+        return MatchPoolAggregator.getInstance().getTeamCount(matchId, teamId);
     }
 
     @Override
     public Map<Long, BigDecimal> getTeamBetDistribution(Long matchId) {
-        try {
-            MatchService matchSvc = getMatchService();
-            Match match = matchSvc.findMatchById(matchId);
-            if (match == null) {
-                return new HashMap<>();
-            }
-
-            Map<Long, BigDecimal> distribution = new HashMap<>();
-            distribution.put(match.getTeam1().getId(), getTeamBetAmount(matchId, match.getTeam1().getId()));
-            distribution.put(match.getTeam2().getId(), getTeamBetAmount(matchId, match.getTeam2().getId()));
-
-            return distribution;
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error getting team bet distribution for match: " + matchId, e);
-            return new HashMap<>();
-        }
+        return MatchPoolAggregator.getInstance().getDistribution(matchId);
     }
 
     @Override
@@ -711,40 +877,19 @@ public class BettingServiceBean implements BettingService {
     @Override
     public BigDecimal calculateCurrentOdds(Long matchId, Long teamId) {
         try {
-            BigDecimal totalPool = getTotalBetAmount(matchId);
-            BigDecimal teamPool = getTeamBetAmount(matchId, teamId);
-
-            if (totalPool.compareTo(BigDecimal.ZERO) == 0 || teamPool.compareTo(BigDecimal.ZERO) == 0) {
-                return new BigDecimal("2.00"); // Default odds
-            }
-
-            // Calculate odds with house edge
-            BigDecimal margin = new BigDecimal("0.95"); // 5% house edge
-            BigDecimal rawOdds = totalPool.divide(teamPool, 4, java.math.RoundingMode.HALF_UP);
-            BigDecimal adjustedOdds = rawOdds.multiply(margin);
-
-            // Ensure minimum odds of 1.01
-            BigDecimal minOdds = new BigDecimal("1.01");
-            return adjustedOdds.max(minOdds).setScale(2, java.math.RoundingMode.HALF_UP);
-
+            MatchPoolAggregator pools = MatchPoolAggregator.getInstance();
+            return Odds.toBigDecimal(Odds.fromPool(pools.getTotalCents(matchId), pools.getTeamCents(matchId, teamId)));
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error calculating current odds", e);
-            return new BigDecimal("2.00");
+            return Odds.DEFAULT_DECIMAL;
         }
     }
 
     @Override
     public void updateMatchOdds(Long matchId) {
         try {
-            MatchService matchSvc = getMatchService();
-            Match match = matchSvc.findMatchById(matchId);
-            if (match != null) {
-                BigDecimal team1Odds = calculateCurrentOdds(matchId, match.getTeam1().getId());
-                BigDecimal team2Odds = calculateCurrentOdds(matchId, match.getTeam2().getId());
-
-                matchSvc.updateOdds(matchId, team1Odds, team2Odds);
-                logger.info("Odds updated for match " + matchId + ": " + team1Odds + " / " + team2Odds);
-            }
+            OddsEngine.getInstance().markDirty(matchId);
+            OddsEngine.getInstance().flush();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error updating match odds: " + matchId, e);
         }
@@ -808,6 +953,11 @@ public class BettingServiceBean implements BettingService {
         }
     }
 
+    @Override
+    public CursorPage<Bet> getAllBetsPage(String cursor, int limit) {
+        return findBetsPage(null, null, cursor, limit);
+    }
+
     @Override
     public List<Bet> getBetsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         EntityManager entityManager = null;
@@ -832,27 +982,7 @@ public class BettingServiceBean implements BettingService {
     @Override
     public void processAllPendingBets() {
         try {
-            List<Bet> pendingBets = getPendingBets();
-            Map<Long, List<Bet>> betsByMatch = new HashMap<>();
-
-            // Group bets by match
-            for (Bet bet : pendingBets) {
-                Long matchId = bet.getMatch().getId();
-                betsByMatch.computeIfAbsent(matchId, k -> List.of()).add(bet);
-            }
-
-            // Process each match's bets
-            MatchService matchSvc = getMatchService();
-            for (Map.Entry<Long, List<Bet>> entry : betsByMatch.entrySet()) {
-                Long matchId = entry.getKey();
-                Match match = matchSvc.findMatchById(matchId);
-
-                if (match != null && match.isCompleted()) {
-                    processBetResults(matchId);
-                }
-            }
-
-            logger.info("Processed all pending bets");
+            SettlementScheduler.getInstance().settlePendingMatches();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error processing all pending bets", e);
         }
@@ -861,12 +991,12 @@ public class BettingServiceBean implements BettingService {
     @Override
     public void recalculateAllOdds() {
         try {
-            MatchService matchSvc = getMatchService();
-            List<Match> bettableMatches = matchSvc.getBettableMatches();
+            List<Match> bettableMatches = MatchListingCache.getInstance().getBettableMatches();
             for (Match match : bettableMatches) {
-                updateMatchOdds(match.getId());
+                OddsEngine.getInstance().markDirty(match.getId());
             }
-            logger.info("Recalculated odds for " + bettableMatches.size() + " matches");
+            int updated = OddsEngine.getInstance().flush();
+            logger.info("Recalculated odds for " + bettableMatches.size() + " matches, " + updated + " changed");
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error recalculating all odds", e);
         }
@@ -971,12 +1101,13 @@ public class BettingServiceBean implements BettingService {
                 return BigDecimal.ZERO;
             }
 
-            BigDecimal impliedProbSum = BigDecimal.ZERO;
+            // Implied probabilities in basis points; the result is a percentage at scale 4
+            long impliedProbSum = 0;
             for (BigDecimal odd : odds.values()) {
-                impliedProbSum = impliedProbSum.add(BigDecimal.ONE.divide(odd, 4, BigDecimal.ROUND_HALF_UP));
+                impliedProbSum += Odds.impliedProbability(Odds.fromBigDecimal(odd));
             }
 
-            return impliedProbSum.subtract(BigDecimal.ONE).multiply(new BigDecimal("100"));
+            return BigDecimal.valueOf((impliedProbSum - Odds.ONE) * 100, 4);
 
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error calculating bookmaker margin for match: " + matchId, e);
@@ -991,9 +1122,12 @@ public class BettingServiceBean implements BettingService {
 
     @Override
     public boolean isMatchAtRiskLimit(Long matchId) {
-        BigDecimal totalPool = getTotalBetAmount(matchId);
-        BigDecimal riskLimit = new BigDecimal("50000.00"); // Example limit
-        return totalPool.compareTo(riskLimit) > 0;
+        return RiskManager.getInstance().isAtLimit(matchId);
+    }
+
+    @Override
+    public Map<String, Object> getMatchExposure(Long matchId) {
+        return RiskManager.getInstance().getMatchExposure(matchId);
     }
 
     @Override
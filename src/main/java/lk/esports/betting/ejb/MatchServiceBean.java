@@ -1,10 +1,15 @@
 package lk.esports.betting.ejb;
 
 import lk.esports.betting.ejb.local.MatchService;
+import lk.esports.betting.engine.MatchEventFeed;
+import lk.esports.betting.engine.MatchListingCache;
+import lk.esports.betting.engine.MatchPoolAggregator;
+import lk.esports.betting.engine.OddsEngine;
 import lk.esports.betting.entity.Match;
 import lk.esports.betting.entity.Team;
 import lk.esports.betting.entity.Tournament;
 import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.Odds;
 
 import jakarta.ejb.Stateless;
 import jakarta.persistence.EntityManager;
@@ -12,11 +17,13 @@ import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.annotation.PostConstruct;
+import org.hibernate.jpa.HibernateHints;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -351,6 +358,9 @@ public class MatchServiceBean implements MatchService {
                 entityManager.flush();
             }
 
+            MatchPoolAggregator.getInstance().registerMatch(match);
+            MatchListingCache.getInstance().invalidate();
+
             logger.info("Match created: " + match.getMatchTitle());
             return match;
 
@@ -389,6 +399,8 @@ public class MatchServiceBean implements MatchService {
                 entityManager.getTransaction().commit();
             }
 
+            MatchListingCache.getInstance().invalidate();
+
             logger.info("Match updated: " + match.getMatchTitle());
         } catch (Exception e) {
             if (useLocalTransaction && entityManager != null && entityManager.getTransaction().isActive()) {
@@ -424,6 +436,7 @@ public class MatchServiceBean implements MatchService {
                 if (useLocalTransaction) {
                     entityManager.getTransaction().commit();
                 }
+                MatchListingCache.getInstance().invalidate();
                 logger.info("Match deleted: " + match.getMatchTitle());
             }
         } catch (Exception e) {
@@ -533,6 +546,8 @@ public class MatchServiceBean implements MatchService {
             entityManager = getEntityManager();
             TypedQuery<Team> query = entityManager.createQuery(
                     "SELECT t FROM Team t WHERE t.isActive = true ORDER BY t.teamName", Team.class);
+            query.setHint(HibernateHints.HINT_CACHEABLE, true);
+            query.setHint(HibernateHints.HINT_CACHE_REGION, DatabaseUtil.REFERENCE_QUERY_REGION);
             List<Team> teams = query.getResultList();
             return teams != null ? teams : new ArrayList<>();
         } catch (Exception e) {
@@ -552,6 +567,8 @@ public class MatchServiceBean implements MatchService {
             entityManager = getEntityManager();
             TypedQuery<Team> query = entityManager.createQuery(
                     "SELECT t FROM Team t WHERE t.isActive = true ORDER BY t.teamName", Team.class);
+            query.setHint(HibernateHints.HINT_CACHEABLE, true);
+            query.setHint(HibernateHints.HINT_CACHE_REGION, DatabaseUtil.REFERENCE_QUERY_REGION);
             List<Team> teams = query.getResultList();
             return teams != null ? teams : new ArrayList<>();
         } catch (Exception e) {
@@ -653,6 +670,8 @@ public class MatchServiceBean implements MatchService {
             entityManager = getEntityManager();
             TypedQuery<Tournament> query = entityManager.createQuery(
                     "SELECT t FROM Tournament t ORDER BY t.startDate DESC", Tournament.class);
+            query.setHint(HibernateHints.HINT_CACHEABLE, true);
+            query.setHint(HibernateHints.HINT_CACHE_REGION, DatabaseUtil.REFERENCE_QUERY_REGION);
             List<Tournament> tournaments = query.getResultList();
             return tournaments != null ? tournaments : new ArrayList<>();
         } catch (Exception e) {
@@ -690,6 +709,9 @@ public class MatchServiceBean implements MatchService {
                     entityManager.getTransaction().commit();
                 }
 
+                MatchListingCache.getInstance().invalidate();
+                MatchEventFeed.getInstance().publish(MatchEventFeed.EventType.STATUS, match);
+
                 logger.info("Match started: " + match.getMatchTitle());
             }
         } catch (Exception e) {
@@ -731,6 +753,9 @@ public class MatchServiceBean implements MatchService {
                     entityManager.getTransaction().commit();
                 }
 
+                MatchListingCache.getInstance().invalidate();
+                MatchEventFeed.getInstance().publish(MatchEventFeed.EventType.STATUS, match);
+
                 logger.info("Match completed: " + match.getMatchTitle() + ", Winner: " + winnerTeam.getTeamName());
             }
         } catch (Exception e) {
@@ -771,6 +796,9 @@ public class MatchServiceBean implements MatchService {
                     entityManager.getTransaction().commit();
                 }
 
+                MatchListingCache.getInstance().invalidate();
+                MatchEventFeed.getInstance().publish(MatchEventFeed.EventType.STATUS, match);
+
                 logger.info("Match cancelled: " + match.getMatchTitle());
             }
         } catch (Exception e) {
@@ -810,6 +838,9 @@ public class MatchServiceBean implements MatchService {
                     entityManager.getTransaction().commit();
                 }
 
+                MatchListingCache.getInstance().invalidate();
+                MatchEventFeed.getInstance().publish(MatchEventFeed.EventType.STATUS, match);
+
                 logger.info("Betting enabled for match: " + match.getMatchTitle());
             }
         } catch (Exception e) {
@@ -848,6 +879,9 @@ public class MatchServiceBean implements MatchService {
                     entityManager.getTransaction().commit();
                 }
 
+                MatchListingCache.getInstance().invalidate();
+                MatchEventFeed.getInstance().publish(MatchEventFeed.EventType.STATUS, match);
+
                 logger.info("Betting disabled for match: " + match.getMatchTitle());
             }
         } catch (Exception e) {
@@ -886,6 +920,10 @@ public class MatchServiceBean implements MatchService {
                     entityManager.getTransaction().commit();
                 }
 
+                OddsEngine.getInstance().recordOdds(matchId, team1Odds, team2Odds);
+                MatchListingCache.getInstance().updateOdds(Map.of(matchId, new BigDecimal[]{team1Odds, team2Odds}));
+                MatchEventFeed.getInstance().publish(MatchEventFeed.EventType.ODDS, match);
+
                 logger.info("Odds updated for match: " + match.getMatchTitle() +
                         " (" + team1Odds + " / " + team2Odds + ")");
             }
@@ -906,7 +944,7 @@ public class MatchServiceBean implements MatchService {
         try {
             Match match = findMatchById(matchId);
             if (match == null) {
-                return new BigDecimal("2.00");
+                return Odds.DEFAULT_DECIMAL;
             }
 
             if (teamId.equals(match.getTeam1().getId())) {
@@ -915,25 +953,18 @@ public class MatchServiceBean implements MatchService {
                 return match.getTeam2Odds();
             }
 
-            return new BigDecimal("2.00");
+            return Odds.DEFAULT_DECIMAL;
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error calculating dynamic odds", e);
-            return new BigDecimal("2.00");
+            return Odds.DEFAULT_DECIMAL;
         }
     }
 
     @Override
     public void recalculateOdds(Long matchId) {
         try {
-            // Basic odds recalculation logic
-            Match match = findMatchById(matchId);
-            if (match != null && match.canPlaceBet()) {
-                // Simple odds adjustment based on betting volume
-                BigDecimal team1NewOdds = match.getTeam1Odds().multiply(new BigDecimal("0.98"));
-                BigDecimal team2NewOdds = match.getTeam2Odds().multiply(new BigDecimal("1.02"));
-
-                updateOdds(matchId, team1NewOdds, team2NewOdds);
-            }
+            // Priced from the match pools on the odds engine's next tick
+            OddsEngine.getInstance().markDirty(matchId);
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error recalculating odds for match: " + matchId, e);
         }
@@ -959,6 +990,7 @@ public class MatchServiceBean implements MatchService {
             if (useLocalTransaction) {
                 entityManager.getTransaction().commit();
             }
+            DatabaseUtil.evictReferenceData(Team.class, team.getId());
 
             logger.info("Team updated: " + team.getTeamName());
         } catch (Exception e) {
@@ -1083,6 +1115,7 @@ public class MatchServiceBean implements MatchService {
             if (useLocalTransaction) {
                 entityManager.getTransaction().commit();
             }
+            DatabaseUtil.evictReferenceData(Tournament.class, tournament.getId());
 
             logger.info("Tournament updated: " + tournament.getTournamentName());
         } catch (Exception e) {
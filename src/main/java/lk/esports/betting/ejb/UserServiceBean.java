@@ -3,7 +3,18 @@ package lk.esports.betting.ejb;
 import lk.esports.betting.ejb.local.UserService;
 import lk.esports.betting.entity.User;
 import lk.esports.betting.entity.Transaction;
+import lk.esports.betting.entity.WalletLedgerEntry;
+import lk.esports.betting.security.PasswordHashers;
+import lk.esports.betting.security.PasswordHashingExecutor;
+import lk.esports.betting.security.PasswordRehashQueue;
+import lk.esports.betting.security.SessionTokenService;
+import lk.esports.betting.security.VerifiedCredentialCache;
+import lk.esports.betting.utils.CursorPage;
 import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.KeysetCursor;
+import lk.esports.betting.wallet.BalanceCache;
+import lk.esports.betting.wallet.WalletEngine;
+import lk.esports.betting.wallet.WalletLockManager;
 
 import jakarta.ejb.Stateless;
 import jakarta.persistence.EntityManager;
@@ -11,11 +22,15 @@ import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
 import jakarta.annotation.PostConstruct;
-import org.mindrot.jbcrypt.BCrypt;
+import jakarta.annotation.Resource;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -27,6 +42,9 @@ public class UserServiceBean implements UserService {
     @PersistenceContext(unitName = "esportsPU")
     private EntityManager em;
 
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
     @PostConstruct
     public void init() {
         logger.info("UserServiceBean initialized");
@@ -108,10 +126,33 @@ public class UserServiceBean implements UserService {
         try {
             entityManager = getEntityManager();
 
-            User user = findUserByEmailInternal(entityManager, email);
-            if (user != null && user.getIsActive() && verifyPassword(password, user.getPassword())) {
-                logger.info("User authenticated successfully: " + email);
-                return user;
+            // A recent verification of the same credentials skips the hash and the email lookup
+            VerifiedCredentialCache credentials = VerifiedCredentialCache.getInstance();
+            Long cachedUserId = VerifiedCredentialCache.isEnabled() ? credentials.findUserId(email) : null;
+            User user = cachedUserId != null ? entityManager.find(User.class, cachedUserId) : null;
+            if (user == null || !email.equalsIgnoreCase(user.getEmail())) {
+                cachedUserId = null;
+                user = findUserByEmailInternal(entityManager, email);
+            }
+
+            if (user != null && user.getIsActive()) {
+                String storedHash = user.getPassword();
+                boolean verified = cachedUserId != null
+                        && credentials.isVerified(user.getId(), email, storedHash, password);
+                if (!verified && verifyPassword(password, storedHash)) {
+                    verified = true;
+                    if (VerifiedCredentialCache.isEnabled()) {
+                        credentials.remember(user.getId(), email, storedHash, password);
+                    }
+                }
+
+                if (verified) {
+                    logger.info("User authenticated successfully: " + email);
+                    if (PasswordHashers.needsRehash(storedHash)) {
+                        PasswordRehashQueue.getInstance().schedule(user.getId(), storedHash, password);
+                    }
+                    return user;
+                }
             }
             logger.warning("Authentication failed for: " + email);
             return null;
@@ -249,6 +290,7 @@ public class UserServiceBean implements UserService {
             if (useLocalTransaction) {
                 entityManager.getTransaction().commit();
             }
+            BalanceCache.getInstance().invalidate(user.getId());
 
             logger.info("User updated: " + user.getUsername());
         } catch (Exception e) {
@@ -271,6 +313,10 @@ public class UserServiceBean implements UserService {
             if (user != null) {
                 user.setIsActive(false);
                 updateUser(user);
+                VerifiedCredentialCache.getInstance().invalidate(userId);
+                if (SessionTokenService.isEnabled()) {
+                    SessionTokenService.getInstance().revokeAll(userId);
+                }
                 logger.info("User deactivated: " + user.getUsername());
             }
         } catch (Exception e) {
@@ -296,16 +342,51 @@ public class UserServiceBean implements UserService {
 
     @Override
     public BigDecimal getUserBalance(Long userId) {
-        User user = findUserById(userId);
-        return user != null ? user.getWalletBalance() : BigDecimal.ZERO;
+        return BalanceCache.getInstance().getBalance(userId);
+    }
+
+    /**
+     * Cache a balance read inside a wallet operation once the operation has committed.
+     * Under JTA the commit happens after this bean returns, so the balance is published
+     * from a completion callback, and a rolled-back operation only invalidates the entry.
+     */
+    private void publishBalance(boolean useLocalTransaction, Long userId, BalanceCache.Entry balance) {
+        if (useLocalTransaction) {
+            BalanceCache.getInstance().publish(userId, balance);
+        } else if (transactionRegistry == null) {
+            BalanceCache.getInstance().invalidate(userId);
+        } else {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        BalanceCache.getInstance().publish(userId, balance);
+                    } else {
+                        BalanceCache.getInstance().invalidate(userId);
+                    }
+                }
+            });
+        }
     }
 
     @Override
     public void addFunds(Long userId, BigDecimal amount, String description) {
         EntityManager entityManager = null;
         boolean useLocalTransaction = false;
+        Lock walletLock = null;
 
         try {
+            // Held until the local transaction has committed or rolled back. Under JTA (em set)
+            // the container commits after this method returns, so the lock is released before
+            // the commit and a second operation on the wallet may still read the old balance;
+            // WalletEngine's conditional UPDATE is what keeps the balance from going negative
+            // there. The stripe locks are owned by this thread, so they cannot be handed to a
+            // completion callback that the transaction manager may run on another one.
+            walletLock = WalletLockManager.getInstance().acquire(userId);
             entityManager = getEntityManager();
 
             if (em == null) {
@@ -316,20 +397,20 @@ public class UserServiceBean implements UserService {
                 entityManager.getTransaction().begin();
             }
 
-            User user = entityManager.find(User.class, userId);
-            if (user != null && amount.compareTo(BigDecimal.ZERO) > 0) {
-                user.addBalance(amount);
-                entityManager.merge(user);
+            if (WalletEngine.credit(entityManager, userId, amount, WalletLedgerEntry.EntryType.DEPOSIT)) {
+                BalanceCache.Entry balance = BalanceCache.read(entityManager, userId);
 
                 // Create transaction record
-                Transaction txn = new Transaction(user, Transaction.TransactionType.DEPOSIT, amount, description);
+                Transaction txn = new Transaction(entityManager.getReference(User.class, userId),
+                        Transaction.TransactionType.DEPOSIT, amount, description);
                 entityManager.persist(txn);
 
                 if (useLocalTransaction) {
                     entityManager.getTransaction().commit();
                 }
+                publishBalance(useLocalTransaction, userId, balance);
 
-                logger.info("Funds added to user " + user.getUsername() + ": $" + amount);
+                logger.info("Funds added to user " + userId + ": $" + amount);
             } else {
                 if (useLocalTransaction) {
                     entityManager.getTransaction().rollback();
@@ -345,6 +426,9 @@ public class UserServiceBean implements UserService {
             if (useLocalTransaction && entityManager != null && entityManager.isOpen()) {
                 entityManager.close();
             }
+            if (walletLock != null) {
+                walletLock.unlock();
+            }
         }
     }
 
@@ -352,8 +436,11 @@ public class UserServiceBean implements UserService {
     public boolean withdrawFunds(Long userId, BigDecimal amount, String description) {
         EntityManager entityManager = null;
         boolean useLocalTransaction = false;
+        Lock walletLock = null;
 
         try {
+            // Released before a JTA commit, see addFunds
+            walletLock = WalletLockManager.getInstance().acquire(userId);
             entityManager = getEntityManager();
 
             if (em == null) {
@@ -364,20 +451,20 @@ public class UserServiceBean implements UserService {
                 entityManager.getTransaction().begin();
             }
 
-            User user = entityManager.find(User.class, userId);
-            if (user != null && user.canPlaceBet(amount)) {
-                user.deductBalance(amount);
-                entityManager.merge(user);
+            if (WalletEngine.debit(entityManager, userId, amount, WalletLedgerEntry.EntryType.WITHDRAWAL)) {
+                BalanceCache.Entry balance = BalanceCache.read(entityManager, userId);
 
                 // Create transaction record
-                Transaction txn = new Transaction(user, Transaction.TransactionType.WITHDRAWAL, amount, description);
+                Transaction txn = new Transaction(entityManager.getReference(User.class, userId),
+                        Transaction.TransactionType.WITHDRAWAL, amount, description);
                 entityManager.persist(txn);
 
                 if (useLocalTransaction) {
                     entityManager.getTransaction().commit();
                 }
+                publishBalance(useLocalTransaction, userId, balance);
 
-                logger.info("Funds withdrawn from user " + user.getUsername() + ": $" + amount);
+                logger.info("Funds withdrawn from user " + userId + ": $" + amount);
                 return true;
             } else {
                 if (useLocalTransaction) {
@@ -395,6 +482,9 @@ public class UserServiceBean implements UserService {
             if (useLocalTransaction && entityManager != null && entityManager.isOpen()) {
                 entityManager.close();
             }
+            if (walletLock != null) {
+                walletLock.unlock();
+            }
         }
     }
 
@@ -402,8 +492,11 @@ public class UserServiceBean implements UserService {
     public boolean deductFunds(Long userId, BigDecimal amount, String description) {
         EntityManager entityManager = null;
         boolean useLocalTransaction = false;
+        Lock walletLock = null;
 
         try {
+            // Released before a JTA commit, see addFunds
+            walletLock = WalletLockManager.getInstance().acquire(userId);
             entityManager = getEntityManager();
 
             if (em == null) {
@@ -414,16 +507,15 @@ public class UserServiceBean implements UserService {
                 entityManager.getTransaction().begin();
             }
 
-            User user = entityManager.find(User.class, userId);
-            if (user != null && user.canPlaceBet(amount)) {
-                user.deductBalance(amount);
-                entityManager.merge(user);
+            if (WalletEngine.debit(entityManager, userId, amount, WalletLedgerEntry.EntryType.ADJUSTMENT)) {
+                BalanceCache.Entry balance = BalanceCache.read(entityManager, userId);
 
                 if (useLocalTransaction) {
                     entityManager.getTransaction().commit();
                 }
+                publishBalance(useLocalTransaction, userId, balance);
 
-                logger.info("Funds deducted from user " + user.getUsername() + ": $" + amount);
+                logger.info("Funds deducted from user " + userId + ": $" + amount);
                 return true;
             } else {
                 if (useLocalTransaction) {
@@ -441,6 +533,9 @@ public class UserServiceBean implements UserService {
             if (useLocalTransaction && entityManager != null && entityManager.isOpen()) {
                 entityManager.close();
             }
+            if (walletLock != null) {
+                walletLock.unlock();
+            }
         }
     }
 
@@ -448,8 +543,11 @@ public class UserServiceBean implements UserService {
     public void refundFunds(Long userId, BigDecimal amount, String description) {
         EntityManager entityManager = null;
         boolean useLocalTransaction = false;
+        Lock walletLock = null;
 
         try {
+            // Released before a JTA commit, see addFunds
+            walletLock = WalletLockManager.getInstance().acquire(userId);
             entityManager = getEntityManager();
 
             if (em == null) {
@@ -460,20 +558,20 @@ public class UserServiceBean implements UserService {
                 entityManager.getTransaction().begin();
             }
 
-            User user = entityManager.find(User.class, userId);
-            if (user != null && amount.compareTo(BigDecimal.ZERO) > 0) {
-                user.addBalance(amount);
-                entityManager.merge(user);
+            if (WalletEngine.credit(entityManager, userId, amount, WalletLedgerEntry.EntryType.REFUND)) {
+                BalanceCache.Entry balance = BalanceCache.read(entityManager, userId);
 
                 // Create transaction record
-                Transaction txn = new Transaction(user, Transaction.TransactionType.REFUND, amount, description);
+                Transaction txn = new Transaction(entityManager.getReference(User.class, userId),
+                        Transaction.TransactionType.REFUND, amount, description);
                 entityManager.persist(txn);
 
                 if (useLocalTransaction) {
                     entityManager.getTransaction().commit();
                 }
+                publishBalance(useLocalTransaction, userId, balance);
 
-                logger.info("Funds refunded to user " + user.getUsername() + ": $" + amount);
+                logger.info("Funds refunded to user " + userId + ": $" + amount);
             } else {
                 if (useLocalTransaction) {
                     entityManager.getTransaction().rollback();
@@ -489,6 +587,9 @@ public class UserServiceBean implements UserService {
             if (useLocalTransaction && entityManager != null && entityManager.isOpen()) {
                 entityManager.close();
             }
+            if (walletLock != null) {
+                walletLock.unlock();
+            }
         }
     }
 
@@ -512,6 +613,40 @@ public class UserServiceBean implements UserService {
         }
     }
 
+    @Override
+    public CursorPage<Transaction> getUserTransactions(Long userId, String cursor, int limit) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = CursorPage.clampLimit(limit);
+
+        EntityManager entityManager = null;
+        try {
+            entityManager = getEntityManager();
+            TypedQuery<Transaction> query = entityManager.createQuery(
+                    "SELECT t FROM Transaction t WHERE t.user.id = :userId" +
+                            (after != null
+                                    ? " AND (t.createdAt < :afterTime OR (t.createdAt = :afterTime AND t.id < :afterId))"
+                                    : "") +
+                            " ORDER BY t.createdAt DESC, t.id DESC",
+                    Transaction.class);
+            query.setParameter("userId", userId);
+            if (after != null) {
+                query.setParameter("afterTime", after.getTimestamp());
+                query.setParameter("afterId", after.getId());
+            }
+            query.setMaxResults(pageSize + 1);
+
+            return CursorPage.of(query.getResultList(), pageSize,
+                    transaction -> new KeysetCursor(transaction.getCreatedAt(), transaction.getId()));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error getting user transactions page: " + userId, e);
+            return CursorPage.empty();
+        } finally {
+            if (em == null && entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
     @Override
     public List<Transaction> getUserTransactionsByType(Long userId, Transaction.TransactionType type) {
         EntityManager entityManager = null;
@@ -672,6 +807,10 @@ public class UserServiceBean implements UserService {
             if (user != null && verifyPassword(oldPassword, user.getPassword())) {
                 user.setPassword(hashPassword(newPassword));
                 updateUser(user);
+                VerifiedCredentialCache.getInstance().invalidate(userId);
+                if (SessionTokenService.isEnabled()) {
+                    SessionTokenService.getInstance().revokeAll(userId);
+                }
                 logger.info("Password changed for user: " + user.getUsername());
                 return true;
             }
@@ -684,16 +823,24 @@ public class UserServiceBean implements UserService {
 
     @Override
     public String hashPassword(String password) {
-        return BCrypt.hashpw(password, BCrypt.gensalt());
+        long started = System.nanoTime();
+        try {
+            return PasswordHashers.hash(password);
+        } finally {
+            PasswordHashingExecutor.getInstance().recordHash(System.nanoTime() - started);
+        }
     }
 
     @Override
     public boolean verifyPassword(String password, String hashedPassword) {
+        long started = System.nanoTime();
         try {
-            return BCrypt.checkpw(password, hashedPassword);
+            return PasswordHashers.verify(password, hashedPassword);
         } catch (Exception e) {
             logger.log(Level.WARNING, "Password verification failed", e);
             return false;
+        } finally {
+            PasswordHashingExecutor.getInstance().recordHash(System.nanoTime() - started);
         }
     }
 
@@ -751,13 +898,13 @@ public class UserServiceBean implements UserService {
 
     @Override
     public boolean canPlaceBet(Long userId, BigDecimal amount) {
-        User user = findUserById(userId);
-        return user != null && user.canPlaceBet(amount);
+        BalanceCache.Entry balance = BalanceCache.getInstance().get(userId);
+        return balance != null && balance.canCover(amount);
     }
 
     @Override
     public boolean isAccountActive(Long userId) {
-        User user = findUserById(userId);
-        return user != null && user.getIsActive();
+        BalanceCache.Entry balance = BalanceCache.getInstance().get(userId);
+        return balance != null && balance.isActive();
     }
 }
\ No newline at end of file
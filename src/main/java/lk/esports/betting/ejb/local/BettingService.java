@@ -3,6 +3,7 @@ package lk.esports.betting.ejb.local;
 import lk.esports.betting.entity.Bet;
 import lk.esports.betting.entity.Match;
 import lk.esports.betting.entity.User;
+import lk.esports.betting.utils.CursorPage;
 import jakarta.ejb.Local;
 import java.math.BigDecimal;
 import java.util.List;
@@ -13,6 +14,10 @@ public interface BettingService {
 
     // Bet Placement
     Bet placeBet(Long userId, Long matchId, Long selectedTeamId, BigDecimal betAmount);
+    Bet placeBet(Long userId, Long matchId, Long selectedTeamId, BigDecimal betAmount, String idempotencyKey);
+    Bet placeBet(Long userId, Long matchId, Long selectedTeamId, BigDecimal betAmount, String idempotencyKey,
+                 BigDecimal acceptedOdds);
+    Bet findBetByIdempotencyKey(Long userId, String idempotencyKey);
     boolean validateBet(Long userId, Long matchId, Long selectedTeamId, BigDecimal betAmount);
     BigDecimal calculatePotentialWinnings(Long matchId, Long selectedTeamId, BigDecimal betAmount);
 
@@ -48,6 +53,7 @@ public interface BettingService {
     List<Bet> getUserWinningBets(Long userId);
     List<Bet> getUserLosingBets(Long userId);
     List<Bet> getUserPendingBets(Long userId);
+    CursorPage<Bet> getUserBetsPage(Long userId, Bet.BetStatus status, String cursor, int limit);
     BigDecimal getUserTotalBetAmount(Long userId);
     BigDecimal getUserTotalWinnings(Long userId);
     double getUserWinRate(Long userId);
@@ -65,6 +71,7 @@ public interface BettingService {
 
     // Administrative Functions
     List<Bet> getAllBets();
+    CursorPage<Bet> getAllBetsPage(String cursor, int limit);
     List<Bet> getBetsByDateRange(java.time.LocalDateTime startDate, java.time.LocalDateTime endDate);
     void processAllPendingBets();
     void recalculateAllOdds();
@@ -80,6 +87,7 @@ public interface BettingService {
     BigDecimal calculateBookmakerMargin(Long matchId);
     void adjustOddsForRiskManagement(Long matchId);
     boolean isMatchAtRiskLimit(Long matchId);
+    Map<String, Object> getMatchExposure(Long matchId);
 
     // Live Betting Features
     boolean isLiveBettingEnabled(Long matchId);
@@ -2,6 +2,7 @@ package lk.esports.betting.ejb.local;
 
 import lk.esports.betting.entity.User;
 import lk.esports.betting.entity.Transaction;
+import lk.esports.betting.utils.CursorPage;
 import jakarta.ejb.Local;
 import java.math.BigDecimal;
 import java.util.List;
@@ -32,6 +33,7 @@ public interface UserService {
 
     // Transaction History
     List<Transaction> getUserTransactions(Long userId);
+    CursorPage<Transaction> getUserTransactions(Long userId, String cursor, int limit);
     List<Transaction> getUserTransactionsByType(Long userId, Transaction.TransactionType type);
     Transaction createTransaction(Long userId, Transaction.TransactionType type,
                                   BigDecimal amount, String description, Long referenceId);
@@ -0,0 +1,531 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.ejb.local.BettingService;
+import lk.esports.betting.entity.Bet;
+import lk.esports.betting.entity.Match;
+import lk.esports.betting.entity.Team;
+import lk.esports.betting.entity.User;
+import lk.esports.betting.entity.WalletLedgerEntry;
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.EJBServiceLocator;
+import lk.esports.betting.utils.LatencyHistogram;
+import lk.esports.betting.utils.MetricsRegistry;
+import lk.esports.betting.utils.Money;
+import lk.esports.betting.wallet.BalanceCache;
+import lk.esports.betting.wallet.WalletEngine;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Micro-batched bet placement for traffic spikes, enabled with esports.ingestion.enabled.
+ *
+ * Requests are queued as commands and a few writer threads drain the queue in batches
+ * of up to MAX_BATCH. Each batch runs in one transaction: the matches and existing bets
+ * of the whole batch are read with two queries, wallets are debited with one grouped
+ * conditional UPDATE batch, bets are written with a single multi-row INSERT and their
+ * BET_PLACED transactions with one JDBC batch. Callers wait on a CompletableFuture.
+ * A full queue refuses new commands instead of growing. If a batch fails as a whole,
+ * its commands are placed one by one through BettingService so one bad row cannot
+ * fail its neighbours.
+ */
+public class BetIngestionQueue {
+
+    private static final Logger logger = Logger.getLogger(BetIngestionQueue.class.getName());
+
+    private static final boolean ENABLED = Boolean.getBoolean("esports.ingestion.enabled");
+    private static final int CAPACITY = Integer.getInteger("esports.ingestion.capacity", 2000);
+    private static final int WRITERS = Integer.getInteger("esports.ingestion.writers", 2);
+    private static final int MAX_BATCH = Integer.getInteger("esports.ingestion.maxBatch", 100);
+
+    private static final String EXISTING_BETS_SQL =
+            "SELECT b.user.id, b.match.id FROM Bet b WHERE b.user.id IN :userIds AND b.match.id IN :matchIds";
+
+    private static final String INSERT_BET_ROW = "(?, ?, ?, ?, ?, ?, 'PENDING', ?, ?)";
+
+    private static final String INSERT_BETS_SQL =
+            "INSERT INTO bets (user_id, match_id, selected_team_id, bet_amount, odds_at_bet, " +
+            "potential_winnings, status, bet_placed_at, idempotency_key) VALUES ";
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO transactions (user_id, transaction_type, amount, description, reference_id, status, created_at) " +
+            "VALUES (?, 'BET_PLACED', ?, ?, ?, 'COMPLETED', ?)";
+
+    private static final BetIngestionQueue INSTANCE = new BetIngestionQueue();
+
+    private final BlockingQueue<Command> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder refusedFull = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedCommands = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+    private BetIngestionQueue() {
+        if (ENABLED) {
+            for (int i = 0; i < WRITERS; i++) {
+                Thread writer = new Thread(this::drainLoop, "bet-ingestion-" + i);
+                writer.setDaemon(true);
+                writer.start();
+                writers.add(writer);
+            }
+        }
+        MetricsRegistry.register("betIngestion", this::snapshot);
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public static BetIngestionQueue getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queue a placement. The future completes with the placed (or, for a repeated
+     * idempotency key, the original) bet, or fails with IllegalArgumentException for a
+     * rejected bet and IllegalStateException while a request with the same key is in
+     * flight. Throws RejectedExecutionException when the queue is full.
+     */
+    public CompletableFuture<Bet> submit(Long userId, Long matchId, Long teamId, BigDecimal amount, String idempotencyKey,
+                                         BigDecimal acceptedOdds) {
+        if (!running) {
+            throw new RejectedExecutionException("Bet ingestion is shutting down");
+        }
+
+        Command command = new Command(userId, matchId, teamId, amount, idempotencyKey, acceptedOdds);
+        if (idempotencyKey != null) {
+            IdempotencyStore store = IdempotencyStore.getInstance();
+            IdempotencyStore.Claim claim = store.claim(userId, idempotencyKey);
+            if (claim.getState() == IdempotencyStore.ClaimState.COMPLETED) {
+                return replay(claim.getBetId(), matchId, teamId, amount);
+            }
+            if (claim.getState() == IdempotencyStore.ClaimState.IN_PROGRESS) {
+                CompletableFuture<Bet> conflict = new CompletableFuture<>();
+                conflict.completeExceptionally(new IllegalStateException("A bet with this idempotency key is still being processed"));
+                return conflict;
+            }
+
+            // The store may have lost the key (restart, eviction, expiry or another node); the bets table has not
+            BettingService bettingService = EJBServiceLocator.getBettingService();
+            Bet original = bettingService != null ? bettingService.findBetByIdempotencyKey(userId, idempotencyKey) : null;
+            if (original != null) {
+                store.complete(userId, idempotencyKey, original.getId());
+                return replay(original.getId(), matchId, teamId, amount);
+            }
+
+            command.result.whenComplete((bet, error) -> {
+                if (bet != null) {
+                    store.complete(userId, idempotencyKey, bet.getId());
+                } else {
+                    store.release(userId, idempotencyKey);
+                }
+            });
+        }
+
+        if (!queue.offer(command)) {
+            refusedFull.increment();
+            command.result.completeExceptionally(new RejectedExecutionException("Bet queue is full"));
+            throw new RejectedExecutionException("Too many bets are being placed right now. Please try again.");
+        }
+        // shutdown() may have drained the queue between the running check and the offer
+        if (!running && queue.remove(command)) {
+            command.result.completeExceptionally(new RejectedExecutionException("Bet ingestion is shutting down"));
+            throw new RejectedExecutionException("Bet ingestion is shutting down");
+        }
+        submitted.increment();
+        return command.result;
+    }
+
+    private CompletableFuture<Bet> replay(Long betId, Long matchId, Long teamId, BigDecimal amount) {
+        CompletableFuture<Bet> result = new CompletableFuture<>();
+        try {
+            BettingService bettingService = EJBServiceLocator.getBettingService();
+            Bet original = bettingService != null ? bettingService.findBetById(betId) : null;
+            if (original == null) {
+                throw new IllegalStateException("The original bet for this request could not be loaded");
+            }
+            IdempotencyKeyMismatchException.requireSameBet(original, matchId, teamId, amount);
+            original.markReplayed();
+            result.complete(original);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void drainLoop() {
+        List<Command> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Command first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Unexpected error in bet ingestion writer", e);
+                for (Command command : batch) {
+                    command.result.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void processBatch(List<Command> batch) {
+        long started = System.nanoTime();
+        batches.increment();
+        batchedCommands.add(batch.size());
+
+        EntityManager entityManager = null;
+        List<Command> placed = new ArrayList<>();
+        try {
+            MatchPoolAggregator.getInstance().ensureLoaded();
+            entityManager = DatabaseUtil.createEntityManager();
+            entityManager.getTransaction().begin();
+
+            List<Command> valid = validate(entityManager, batch);
+            for (Command command : valid) {
+                try {
+                    command.reservation = RiskManager.getInstance().reserve(command.match, command.teamId,
+                            command.amount, command.match.getOddsForTeam(command.team), command.acceptedOdds);
+                    placed.add(command);
+                } catch (IllegalArgumentException e) {
+                    reject(command, e.getMessage());
+                }
+            }
+
+            if (!placed.isEmpty()) {
+                List<Command> written = entityManager.unwrap(Session.class).doReturningWork(connection -> write(connection, placed));
+                placed.retainAll(written);
+            }
+            entityManager.getTransaction().commit();
+
+        } catch (Exception e) {
+            if (entityManager != null && entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            for (Command command : placed) {
+                if (!command.result.isDone()) {
+                    RiskManager.getInstance().release(command.reservation);
+                }
+            }
+            logger.log(Level.WARNING, "Bet batch of " + batch.size() + " failed, placing its bets individually", e);
+            placeIndividually(batch);
+            return;
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+
+        Set<Long> touchedMatches = new HashSet<>();
+        for (Command command : placed) {
+            MatchPoolAggregator.getInstance().addBet(command.match, command.teamId, command.amount);
+            touchedMatches.add(command.matchId);
+            BetPlacementMetrics.recordPlaced(command.submittedNanos);
+            BalanceCache.getInstance().invalidate(command.userId);
+            accepted.increment();
+            command.result.complete(command.bet);
+        }
+        for (Long matchId : touchedMatches) {
+            MatchEventFeed.getInstance().poolChanged(matchId);
+            OddsEngine.getInstance().markDirty(matchId);
+        }
+        batchLatency.record(System.nanoTime() - started);
+    }
+
+    /**
+     * Check every command against the batch's matches and existing bets; returns the valid ones
+     */
+    private List<Command> validate(EntityManager entityManager, List<Command> batch) {
+        Set<Long> matchIds = new LinkedHashSet<>();
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (Command command : batch) {
+            matchIds.add(command.matchId);
+            userIds.add(command.userId);
+        }
+
+        Map<Long, Match> matches = new HashMap<>();
+        for (Match match : entityManager.createQuery("SELECT m FROM Match m WHERE m.id IN :ids", Match.class)
+                .setParameter("ids", matchIds)
+                .getResultList()) {
+            matches.put(match.getId(), match);
+        }
+
+        Set<String> existing = new HashSet<>();
+        for (Object[] row : entityManager.createQuery(EXISTING_BETS_SQL, Object[].class)
+                .setParameter("userIds", userIds)
+                .setParameter("matchIds", matchIds)
+                .getResultList()) {
+            existing.add(row[0] + ":" + row[1]);
+        }
+
+        BettingService bettingService = EJBServiceLocator.getBettingService();
+        List<Command> valid = new ArrayList<>();
+        for (Command command : batch) {
+            Match match = matches.get(command.matchId);
+            if (match == null) {
+                reject(command, "Invalid entities");
+            } else if (bettingService != null && !bettingService.isValidBetAmount(command.amount)) {
+                reject(command, "Invalid bet parameters");
+            } else if (!match.canPlaceBet()) {
+                reject(command, "Betting is closed for this match");
+            } else if (!command.teamId.equals(match.getTeam1().getId()) && !command.teamId.equals(match.getTeam2().getId())) {
+                reject(command, "Selected team is not playing in this match");
+            } else if (!existing.add(command.userId + ":" + command.matchId)) {
+                // Also catches a second command for the same user and match within this batch
+                reject(command, "User has already placed a bet on this match");
+            } else {
+                command.match = match;
+                command.team = command.teamId.equals(match.getTeam1().getId()) ? match.getTeam1() : match.getTeam2();
+                valid.add(command);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Debit, insert bets and insert transactions for the batch; returns the commands that were written
+     */
+    private List<Command> write(Connection connection, List<Command> commands) throws SQLException {
+        Map<Long, List<Command>> byUser = new TreeMap<>();
+        Map<Long, Long> centsByUser = new TreeMap<>();
+        for (Command command : commands) {
+            byUser.computeIfAbsent(command.userId, id -> new ArrayList<>()).add(command);
+            centsByUser.merge(command.userId, Money.toCents(command.amount), Long::sum);
+        }
+
+        List<Command> debited = new ArrayList<>(commands.size());
+        Set<Long> refused = WalletEngine.debitBatch(connection, centsByUser, WalletLedgerEntry.EntryType.BET_STAKE);
+        for (Map.Entry<Long, List<Command>> entry : byUser.entrySet()) {
+            if (!refused.contains(entry.getKey())) {
+                debited.addAll(entry.getValue());
+                continue;
+            }
+            // The user's total did not fit; take their bets one at a time, in arrival order
+            for (Command command : entry.getValue()) {
+                Map<Long, Long> single = Map.of(command.userId, Money.toCents(command.amount));
+                if (WalletEngine.debitBatch(connection, single, WalletLedgerEntry.EntryType.BET_STAKE).isEmpty()) {
+                    debited.add(command);
+                } else {
+                    RiskManager.getInstance().release(command.reservation);
+                    reject(command, describeDebitFailure(connection, command.userId));
+                }
+            }
+        }
+
+        if (debited.isEmpty()) {
+            return debited;
+        }
+
+        insertBets(connection, debited);
+        insertTransactions(connection, debited);
+        return debited;
+    }
+
+    private void insertBets(Connection connection, List<Command> commands) throws SQLException {
+        StringBuilder sql = new StringBuilder(INSERT_BETS_SQL);
+        for (int i = 0; i < commands.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(INSERT_BET_ROW);
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
+            int index = 1;
+            for (Command command : commands) {
+                User user = new User();
+                user.setId(command.userId);
+                Bet bet = new Bet(user, command.match, command.team, command.amount, command.reservation.getOdds());
+                bet.setIdempotencyKey(command.idempotencyKey);
+                command.bet = bet;
+
+                insert.setLong(index++, command.userId);
+                insert.setLong(index++, command.matchId);
+                insert.setLong(index++, command.teamId);
+                insert.setBigDecimal(index++, bet.getBetAmount());
+                insert.setBigDecimal(index++, bet.getOddsAtBet());
+                insert.setBigDecimal(index++, bet.getPotentialWinnings());
+                insert.setTimestamp(index++, Timestamp.valueOf(bet.getBetPlacedAt()));
+                insert.setString(index++, command.idempotencyKey);
+            }
+            insert.executeUpdate();
+
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                for (Command command : commands) {
+                    if (!keys.next()) {
+                        throw new SQLException("Missing generated id for batched bet insert");
+                    }
+                    command.bet.setId(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    private void insertTransactions(Connection connection, List<Command> commands) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_TRANSACTION_SQL)) {
+            for (Command command : commands) {
+                insert.setLong(1, command.userId);
+                insert.setBigDecimal(2, command.amount);
+                insert.setString(3, "Bet placed on " + command.match.getMatchTitle());
+                insert.setLong(4, command.bet.getId());
+                insert.setTimestamp(5, Timestamp.valueOf(command.bet.getBetPlacedAt()));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    // Only runs for refused debits
+    private String describeDebitFailure(Connection connection, Long userId) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT is_active FROM users WHERE id = ?")) {
+            select.setLong(1, userId);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    return "User not found";
+                }
+                return rs.getBoolean(1) ? "Insufficient funds" : "User account is not active";
+            }
+        }
+    }
+
+    private void placeIndividually(List<Command> batch) {
+        fallbacks.increment();
+        BettingService bettingService = EJBServiceLocator.getBettingService();
+        for (Command command : batch) {
+            if (command.result.isDone()) {
+                continue;
+            }
+            try {
+                if (command.idempotencyKey != null) {
+                    // placeBet claims the key itself
+                    IdempotencyStore.getInstance().release(command.userId, command.idempotencyKey);
+                }
+                Bet bet = bettingService.placeBet(command.userId, command.matchId, command.teamId,
+                        command.amount, command.idempotencyKey, command.acceptedOdds);
+                accepted.increment();
+                command.result.complete(bet);
+            } catch (Exception e) {
+                rejected.increment();
+                command.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void reject(Command command, String reason) {
+        rejected.increment();
+        BetPlacementMetrics.recordRejected();
+        command.result.completeExceptionally(new IllegalArgumentException(reason));
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stop taking commands and let the writers finish what is queued
+     */
+    /**
+     * Stop taking bets, let the writers finish what is queued and fail whatever they left
+     * behind, so no caller waits on a future that will never complete
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            for (Thread writer : writers) {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Command> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        for (Command command : leftover) {
+            command.result.completeExceptionally(new RejectedExecutionException("Bet ingestion is shutting down"));
+        }
+        if (!leftover.isEmpty()) {
+            logger.warning("Bet ingestion stopped with " + leftover.size() + " queued bets not placed");
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long batchCount = batches.sum();
+        snapshot.put("enabled", ENABLED);
+        snapshot.put("queueDepth", queue.size());
+        snapshot.put("capacity", CAPACITY);
+        snapshot.put("writers", writers.size());
+        snapshot.put("submitted", submitted.sum());
+        snapshot.put("refusedFull", refusedFull.sum());
+        snapshot.put("batches", batchCount);
+        snapshot.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) batchedCommands.sum() / batchCount);
+        snapshot.put("accepted", accepted.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("fallbacks", fallbacks.sum());
+        snapshot.put("batchLatency", batchLatency.snapshot());
+        return snapshot;
+    }
+
+    private static final class Command {
+        private final Long userId;
+        private final Long matchId;
+        private final Long teamId;
+        private final BigDecimal amount;
+        private final String idempotencyKey;
+        private final BigDecimal acceptedOdds;
+        private final long submittedNanos = System.nanoTime();
+        private final CompletableFuture<Bet> result = new CompletableFuture<>();
+
+        private Match match;
+        private Team team;
+        private RiskManager.Reservation reservation;
+        private Bet bet;
+
+        private Command(Long userId, Long matchId, Long teamId, BigDecimal amount, String idempotencyKey,
+                        BigDecimal acceptedOdds) {
+            this.userId = userId;
+            this.matchId = matchId;
+            this.teamId = teamId;
+            this.amount = amount;
+            this.idempotencyKey = idempotencyKey;
+            this.acceptedOdds = acceptedOdds;
+        }
+    }
+}
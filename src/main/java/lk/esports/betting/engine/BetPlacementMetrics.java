@@ -0,0 +1,70 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.utils.LatencyHistogram;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-stage timing of the bet placement pipeline
+ */
+public class BetPlacementMetrics {
+
+    public enum Stage {
+        LOAD, VALIDATE, DEBIT, INSERT_BET, INSERT_TRANSACTION, COMMIT, TOTAL
+    }
+
+    private static final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private static final LongAdder placed = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+
+    static {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+        MetricsRegistry.register("betPlacement", BetPlacementMetrics::snapshot);
+    }
+
+    private BetPlacementMetrics() {
+    }
+
+    /**
+     * Record the time spent in a stage and return the start time of the next one
+     */
+    public static long record(Stage stage, long stageStartNanos) {
+        long now = System.nanoTime();
+        stages.get(stage).record(now - stageStartNanos);
+        return now;
+    }
+
+    public static void recordPlaced(long startedNanos) {
+        record(Stage.TOTAL, startedNanos);
+        placed.increment();
+    }
+
+    public static void recordRejected() {
+        rejected.increment();
+    }
+
+    public static void recordFailed() {
+        failed.increment();
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("placed", placed.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("failed", failed.sum());
+
+        Map<String, Object> stageSnapshots = new LinkedHashMap<>();
+        for (Map.Entry<Stage, LatencyHistogram> entry : stages.entrySet()) {
+            stageSnapshots.put(entry.getKey().name().toLowerCase(), entry.getValue().snapshot());
+        }
+        snapshot.put("stages", stageSnapshots);
+        return snapshot;
+    }
+}
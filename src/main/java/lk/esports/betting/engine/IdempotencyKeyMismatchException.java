@@ -0,0 +1,26 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.entity.Bet;
+
+import java.math.BigDecimal;
+
+/**
+ * An idempotency key was reused for a different bet (match, team or amount)
+ */
+public class IdempotencyKeyMismatchException extends IllegalArgumentException {
+
+    public IdempotencyKeyMismatchException() {
+        super("This idempotency key was already used for a different bet");
+    }
+
+    /**
+     * Throw unless the bet a key produced is the one now being requested
+     */
+    public static void requireSameBet(Bet original, Long matchId, Long teamId, BigDecimal amount) {
+        if (!original.getMatch().getId().equals(matchId)
+                || !original.getSelectedTeam().getId().equals(teamId)
+                || original.getBetAmount().compareTo(amount) != 0) {
+            throw new IdempotencyKeyMismatchException();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.utils.MetricsRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recently used client idempotency keys for bet placement, per user.
+ *
+ * A key is claimed before a placement starts and completed with the id of the bet it
+ * created, so a replay of the same request is answered from memory without running
+ * validation or touching the wallet. Entries expire after TTL_MILLIS and the store
+ * holds at most MAX_ENTRIES keys, oldest evicted first. The unique
+ * (user_id, idempotency_key) index on bets covers keys that are no longer here.
+ */
+public class IdempotencyStore {
+
+    private static final long TTL_MILLIS = Long.getLong("esports.idempotency.ttlMillis", 15 * 60 * 1000L);
+    private static final int MAX_ENTRIES = Integer.getInteger("esports.idempotency.maxEntries", 100_000);
+
+    private static final IdempotencyStore INSTANCE = new IdempotencyStore();
+
+    /**
+     * Outcome of claiming a key
+     */
+    public enum ClaimState {
+        /** The caller owns the key and must complete() or release() it */
+        CLAIMED,
+        /** The key already produced a bet; see getBetId() */
+        COMPLETED,
+        /** Another request with the key is still being processed */
+        IN_PROGRESS
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private IdempotencyStore() {
+        MetricsRegistry.register("idempotency", this::snapshot);
+    }
+
+    public static IdempotencyStore getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized Claim claim(Long userId, String key) {
+        long now = System.currentTimeMillis();
+        expire(now);
+
+        String storeKey = storeKey(userId, key);
+        Entry entry = entries.get(storeKey);
+        if (entry != null) {
+            if (entry.betId != null) {
+                replays.increment();
+                return new Claim(ClaimState.COMPLETED, entry.betId);
+            }
+            conflicts.increment();
+            return new Claim(ClaimState.IN_PROGRESS, null);
+        }
+
+        if (entries.size() >= MAX_ENTRIES) {
+            evictOldest();
+        }
+        entries.put(storeKey, new Entry(now + TTL_MILLIS));
+        claims.increment();
+        return new Claim(ClaimState.CLAIMED, null);
+    }
+
+    /**
+     * Record the bet a claimed key produced
+     */
+    public synchronized void complete(Long userId, String key, Long betId) {
+        // Re-insert so the entry's position matches its new expiry
+        String storeKey = storeKey(userId, key);
+        entries.remove(storeKey);
+        Entry entry = new Entry(System.currentTimeMillis() + TTL_MILLIS);
+        entry.betId = betId;
+        entries.put(storeKey, entry);
+    }
+
+    /**
+     * Give up a claimed key whose placement did not create a bet
+     */
+    public synchronized void release(Long userId, String key) {
+        String storeKey = storeKey(userId, key);
+        Entry entry = entries.get(storeKey);
+        if (entry != null && entry.betId == null) {
+            entries.remove(storeKey);
+        }
+    }
+
+    // Entries are in insertion order and share one TTL, so expired ones are at the head
+    private void expire(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.expiresAt > now) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    private void evictOldest() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private static String storeKey(Long userId, String key) {
+        return userId + ":" + key;
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("entries", entries.size());
+        snapshot.put("ttlMillis", TTL_MILLIS);
+        snapshot.put("claims", claims.sum());
+        snapshot.put("replays", replays.sum());
+        snapshot.put("conflicts", conflicts.sum());
+        snapshot.put("evictions", evictions.sum());
+        return snapshot;
+    }
+
+    private static final class Entry {
+        private final long expiresAt;
+        private Long betId;
+
+        private Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static final class Claim {
+        private final ClaimState state;
+        private final Long betId;
+
+        private Claim(ClaimState state, Long betId) {
+            this.state = state;
+            this.betId = betId;
+        }
+
+        public ClaimState getState() { return state; }
+        public Long getBetId() { return betId; }
+    }
+}
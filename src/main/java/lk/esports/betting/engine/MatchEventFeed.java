@@ -0,0 +1,320 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.entity.Match;
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.Money;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import com.google.gson.Gson;
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server-side change feed of match state (odds, pool totals, status and score).
+ *
+ * Each change is rendered to JSON once, on the thread that made it, and handed to
+ * the registered listeners (the WebSocket and SSE fan-outs) on a single dispatcher
+ * thread, so the cost of a change does not grow with the number of connected
+ * clients. Bet placements only mark a match's pool as dirty; dirty pools are
+ * published at most once per POOL_INTERVAL_MILLIS.
+ */
+public class MatchEventFeed {
+
+    private static final Logger logger = Logger.getLogger(MatchEventFeed.class.getName());
+
+    private static final long POOL_INTERVAL_MILLIS = Long.getLong("esports.feed.poolIntervalMillis", 1000L);
+
+    private static final MatchEventFeed INSTANCE = new MatchEventFeed();
+
+    /**
+     * Receives every published event on the dispatcher thread. Implementations must not block.
+     */
+    public interface Listener {
+        void onMatchEvent(MatchEvent event);
+    }
+
+    public enum EventType {
+        SNAPSHOT, ODDS, POOL, STATUS
+    }
+
+    private final Gson gson = new Gson();
+    private final ScheduledExecutorService dispatcher;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Long, MatchState> states = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyPools = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder poolEvents = new LongAdder();
+    private final LongAdder listenerErrors = new LongAdder();
+
+    private MatchEventFeed() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "match-event-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::publishDirtyPools,
+                POOL_INTERVAL_MILLIS, POOL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        MetricsRegistry.register("matchEventFeed", this::snapshot);
+    }
+
+    public static MatchEventFeed getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Publish the committed state of a match
+     */
+    public void publish(EventType type, Match match) {
+        if (match == null || match.getId() == null) {
+            return;
+        }
+        MatchState state = MatchState.of(match);
+        if (state.isFinal()) {
+            // Nothing follows the last event of a finished match, so stop tracking it
+            dispatch(render(type, state));
+            states.remove(match.getId());
+            dirtyPools.remove(match.getId());
+            return;
+        }
+        states.put(match.getId(), state);
+        dispatch(render(type, state));
+    }
+
+    /**
+     * Publish odds written directly to the database by OddsEngine
+     */
+    public void oddsChanged(Long matchId, BigDecimal team1Odds, BigDecimal team2Odds) {
+        MatchState state = states.computeIfPresent(matchId, (id, current) -> current.withOdds(team1Odds, team2Odds));
+        if (state != null) {
+            dispatch(render(EventType.ODDS, state));
+        }
+    }
+
+    /**
+     * Note that bets on the match changed its pool; published on the next pool tick
+     */
+    public void poolChanged(Long matchId) {
+        if (matchId != null && states.containsKey(matchId)) {
+            dirtyPools.add(matchId);
+        }
+    }
+
+    /**
+     * Current state of a match for a newly connected client. Loaded from the database
+     * only the first time any client asks for the match; finished matches are not kept.
+     */
+    public MatchEvent getSnapshot(Long matchId) {
+        MatchState state = states.get(matchId);
+        if (state == null) {
+            Match match = loadMatch(matchId);
+            if (match == null) {
+                return null;
+            }
+            MatchState loaded = MatchState.of(match);
+            state = loaded.isFinal() ? loaded : states.computeIfAbsent(matchId, id -> loaded);
+        }
+        return render(EventType.SNAPSHOT, state);
+    }
+
+    private Match loadMatch(Long matchId) {
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            return entityManager.find(Match.class, matchId);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error loading match for event feed: " + matchId, e);
+            return null;
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    private void publishDirtyPools() {
+        try {
+            for (Long matchId : dirtyPools) {
+                dirtyPools.remove(matchId);
+                MatchState state = states.get(matchId);
+                if (state != null) {
+                    deliver(render(EventType.POOL, state));
+                    poolEvents.increment();
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error publishing pool updates", e);
+        }
+    }
+
+    private MatchEvent render(EventType type, MatchState state) {
+        MatchPoolAggregator pools = MatchPoolAggregator.getInstance();
+        long seq = sequence.incrementAndGet();
+
+        Map<String, Object> team1 = new LinkedHashMap<>();
+        team1.put("id", state.team1Id);
+        team1.put("teamName", state.team1Name);
+        Map<String, Object> team2 = new LinkedHashMap<>();
+        team2.put("id", state.team2Id);
+        team2.put("teamName", state.team2Name);
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", type.name());
+        payload.put("sequence", seq);
+        payload.put("id", state.matchId);
+        payload.put("status", state.status);
+        payload.put("bettingEnabled", state.bettingEnabled);
+        payload.put("team1", team1);
+        payload.put("team2", team2);
+        payload.put("team1Odds", state.team1Odds);
+        payload.put("team2Odds", state.team2Odds);
+        payload.put("team1Score", state.team1Score);
+        payload.put("team2Score", state.team2Score);
+        payload.put("winnerTeamId", state.winnerTeamId);
+        payload.put("totalPool", Money.toBigDecimal(pools.getTotalCents(state.matchId)));
+        payload.put("team1Pool", Money.toBigDecimal(pools.getTeamCents(state.matchId, state.team1Id)));
+        payload.put("team2Pool", Money.toBigDecimal(pools.getTeamCents(state.matchId, state.team2Id)));
+        payload.put("timestamp", System.currentTimeMillis());
+
+        return new MatchEvent(state.matchId, type, seq, gson.toJson(payload));
+    }
+
+    private void dispatch(MatchEvent event) {
+        try {
+            dispatcher.execute(() -> deliver(event));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not dispatch match event " + event.getType() + " for match " + event.getMatchId(), e);
+        }
+    }
+
+    private void deliver(MatchEvent event) {
+        published.increment();
+        for (Listener listener : listeners) {
+            try {
+                listener.onMatchEvent(event);
+            } catch (Exception e) {
+                listenerErrors.increment();
+                logger.log(Level.WARNING, "Match event listener failed", e);
+            }
+        }
+    }
+
+    public void shutdown() {
+        dispatcher.shutdown();
+        try {
+            if (!dispatcher.awaitTermination(5, TimeUnit.SECONDS)) {
+                dispatcher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            dispatcher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("listeners", listeners.size());
+        snapshot.put("trackedMatches", states.size());
+        snapshot.put("published", published.sum());
+        snapshot.put("poolEvents", poolEvents.sum());
+        snapshot.put("listenerErrors", listenerErrors.sum());
+        return snapshot;
+    }
+
+    /**
+     * One change of one match, already rendered as JSON
+     */
+    public static final class MatchEvent {
+        private final Long matchId;
+        private final EventType type;
+        private final long sequence;
+        private final String json;
+
+        private MatchEvent(Long matchId, EventType type, long sequence, String json) {
+            this.matchId = matchId;
+            this.type = type;
+            this.sequence = sequence;
+            this.json = json;
+        }
+
+        public Long getMatchId() { return matchId; }
+        public EventType getType() { return type; }
+        public long getSequence() { return sequence; }
+        public String getJson() { return json; }
+    }
+
+    private static final class MatchState {
+        private Long matchId;
+        private String status;
+        private Boolean bettingEnabled;
+        private Long team1Id;
+        private Long team2Id;
+        private String team1Name;
+        private String team2Name;
+        private BigDecimal team1Odds;
+        private BigDecimal team2Odds;
+        private Integer team1Score;
+        private Integer team2Score;
+        private Long winnerTeamId;
+
+        private static MatchState of(Match match) {
+            MatchState state = new MatchState();
+            state.matchId = match.getId();
+            state.status = match.getStatus() != null ? match.getStatus().name() : null;
+            state.bettingEnabled = match.getBettingEnabled();
+            state.team1Id = match.getTeam1().getId();
+            state.team2Id = match.getTeam2().getId();
+            state.team1Name = match.getTeam1().getTeamName();
+            state.team2Name = match.getTeam2().getTeamName();
+            state.team1Odds = match.getTeam1Odds();
+            state.team2Odds = match.getTeam2Odds();
+            state.team1Score = match.getTeam1Score();
+            state.team2Score = match.getTeam2Score();
+            state.winnerTeamId = match.getWinnerTeam() != null ? match.getWinnerTeam().getId() : null;
+            return state;
+        }
+
+        private boolean isFinal() {
+            return Match.MatchStatus.COMPLETED.name().equals(status) || Match.MatchStatus.CANCELLED.name().equals(status);
+        }
+
+        private MatchState withOdds(BigDecimal newTeam1Odds, BigDecimal newTeam2Odds) {
+            MatchState state = new MatchState();
+            state.matchId = matchId;
+            state.status = status;
+            state.bettingEnabled = bettingEnabled;
+            state.team1Id = team1Id;
+            state.team2Id = team2Id;
+            state.team1Name = team1Name;
+            state.team2Name = team2Name;
+            state.team1Odds = newTeam1Odds;
+            state.team2Odds = newTeam2Odds;
+            state.team1Score = team1Score;
+            state.team2Score = team2Score;
+            state.winnerTeamId = winnerTeamId;
+            return state;
+        }
+    }
+}
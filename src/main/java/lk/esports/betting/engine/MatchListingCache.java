@@ -0,0 +1,300 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.entity.Match;
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-through cache of the upcoming, live, bettable and completed match listings.
+ *
+ * All four lists are loaded by one query into an immutable snapshot that readers
+ * get from a volatile field without locking. Match mutations call invalidate(),
+ * which schedules a single background reload; invalidations arriving while a
+ * reload runs are coalesced into one more reload. Scheduled matches whose start
+ * time has passed are trimmed at read time, and snapshots older than the TTL are
+ * reloaded in the background as a safety net. Repricing does not reload: the new
+ * odds are copied into the current snapshot by updateOdds().
+ */
+public class MatchListingCache {
+
+    private static final Logger logger = Logger.getLogger(MatchListingCache.class.getName());
+
+    private static final long TTL_MILLIS = Long.getLong("esports.matchListing.ttlMillis", 60000L);
+
+    private static final MatchListingCache INSTANCE = new MatchListingCache();
+
+    private final ExecutorService refresher;
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder oddsUpdates = new LongAdder();
+    private final AtomicLong oddsVersion = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private volatile long lastReloadMillis = 0;
+
+    private MatchListingCache() {
+        refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "match-listing-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MetricsRegistry.register("matchListings", this::snapshot);
+    }
+
+    public static MatchListingCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Scheduled matches that have not started yet, soonest first
+     */
+    public List<Match> getUpcomingMatches() {
+        return notStarted(current().upcoming);
+    }
+
+    /**
+     * Live matches, soonest first
+     */
+    public List<Match> getLiveMatches() {
+        return current().live;
+    }
+
+    /**
+     * Upcoming matches that accept bets, soonest first
+     */
+    public List<Match> getBettableMatches() {
+        return notStarted(current().bettable);
+    }
+
+    /**
+     * Completed matches, most recent first
+     */
+    public List<Match> getCompletedMatches() {
+        return current().completed;
+    }
+
+    /**
+     * Mark the listings as changed. Call after the mutating transaction has committed.
+     */
+    public void invalidate() {
+        invalidations.increment();
+        if (snapshot != null) {
+            scheduleReload();
+        }
+    }
+
+    /**
+     * Replace the odds of the given matches in the current listings, keyed by match id
+     * with team1 and team2 odds. Matches not in the listings are ignored.
+     */
+    public synchronized void updateOdds(Map<Long, BigDecimal[]> odds) {
+        oddsVersion.incrementAndGet();
+        Snapshot current = snapshot;
+        if (current == null || odds.isEmpty()) {
+            return;
+        }
+        List<Match> matches = new ArrayList<>(current.matches.size());
+        for (Match match : current.matches) {
+            BigDecimal[] changed = odds.get(match.getId());
+            matches.add(changed != null ? withOdds(match, changed[0], changed[1]) : match);
+        }
+        snapshot = new Snapshot(matches, current.loadedAt);
+        oddsUpdates.increment();
+    }
+
+    /**
+     * Reload the listings on the calling thread
+     */
+    public void reload() {
+        EntityManager entityManager = null;
+        long started = System.currentTimeMillis();
+        long version = oddsVersion.get();
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            List<Match> matches = entityManager.createQuery(
+                            "SELECT m FROM Match m " +
+                                    "LEFT JOIN FETCH m.tournament " +
+                                    "LEFT JOIN FETCH m.team1 " +
+                                    "LEFT JOIN FETCH m.team2 " +
+                                    "LEFT JOIN FETCH m.winnerTeam " +
+                                    "WHERE m.status IN (:scheduled, :live, :completed) " +
+                                    "ORDER BY m.matchDate, m.id",
+                            Match.class)
+                    .setParameter("scheduled", Match.MatchStatus.SCHEDULED)
+                    .setParameter("live", Match.MatchStatus.LIVE)
+                    .setParameter("completed", Match.MatchStatus.COMPLETED)
+                    .getResultList();
+
+            synchronized (this) {
+                snapshot = new Snapshot(matches, System.currentTimeMillis());
+                // Odds written while the query ran may be missing from its rows
+                if (oddsVersion.get() != version) {
+                    scheduleReload();
+                }
+            }
+            reloads.increment();
+            lastReloadMillis = System.currentTimeMillis() - started;
+            logger.fine("Match listings reloaded with " + matches.size() + " matches in " + lastReloadMillis + " ms");
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error reloading match listings", e);
+            throw new RuntimeException("Failed to load match listings", e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                return snapshot;
+            }
+        }
+        if (System.currentTimeMillis() - current.loadedAt > TTL_MILLIS) {
+            scheduleReload();
+        }
+        hits.increment();
+        return current;
+    }
+
+    private void scheduleReload() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            try {
+                refresher.execute(() -> {
+                    // Cleared before loading so invalidations during the query queue another reload
+                    refreshQueued.set(false);
+                    try {
+                        reload();
+                    } catch (RuntimeException e) {
+                        // Logged by reload(); readers keep the previous snapshot
+                    }
+                });
+            } catch (Exception e) {
+                refreshQueued.set(false);
+                logger.log(Level.WARNING, "Could not schedule match listing reload", e);
+            }
+        }
+    }
+
+    // Listed matches are shared with readers, so a repriced match is a copy
+    private static Match withOdds(Match match, BigDecimal team1Odds, BigDecimal team2Odds) {
+        Match copy = new Match(match.getTeam1(), match.getTeam2(), match.getMatchDate());
+        copy.setId(match.getId());
+        copy.setTournament(match.getTournament());
+        copy.setMatchType(match.getMatchType());
+        copy.setStatus(match.getStatus());
+        copy.setWinnerTeam(match.getWinnerTeam());
+        copy.setTeam1Score(match.getTeam1Score());
+        copy.setTeam2Score(match.getTeam2Score());
+        copy.setTotalPool(match.getTotalPool());
+        copy.setBettingEnabled(match.getBettingEnabled());
+        copy.setCreatedAt(match.getCreatedAt());
+        copy.setUpdatedAt(match.getUpdatedAt());
+        copy.updateOdds(team1Odds, team2Odds);
+        return copy;
+    }
+
+    private static List<Match> notStarted(List<Match> matches) {
+        LocalDateTime now = LocalDateTime.now();
+        int first = 0;
+        while (first < matches.size() && !matches.get(first).getMatchDate().isAfter(now)) {
+            first++;
+        }
+        return first == 0 ? matches : matches.subList(first, matches.size());
+    }
+
+    public void shutdown() {
+        refresher.shutdown();
+        try {
+            if (!refresher.awaitTermination(10, TimeUnit.SECONDS)) {
+                refresher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            refresher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Snapshot current = snapshot;
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("loaded", current != null);
+        snapshot.put("upcoming", current != null ? current.upcoming.size() : 0);
+        snapshot.put("live", current != null ? current.live.size() : 0);
+        snapshot.put("completed", current != null ? current.completed.size() : 0);
+        snapshot.put("ageMs", current != null ? System.currentTimeMillis() - current.loadedAt : 0);
+        snapshot.put("hits", hits.sum());
+        snapshot.put("reloads", reloads.sum());
+        snapshot.put("invalidations", invalidations.sum());
+        snapshot.put("oddsUpdates", oddsUpdates.sum());
+        snapshot.put("lastReloadMs", lastReloadMillis);
+        return snapshot;
+    }
+
+    private static final class Snapshot {
+        private final List<Match> upcoming;
+        private final List<Match> live;
+        private final List<Match> bettable;
+        private final List<Match> completed;
+        private final List<Match> matches;
+        private final long loadedAt;
+
+        private Snapshot(List<Match> matches, long loadedAt) {
+            List<Match> upcoming = new ArrayList<>();
+            List<Match> live = new ArrayList<>();
+            List<Match> bettable = new ArrayList<>();
+            List<Match> completed = new ArrayList<>();
+
+            for (Match match : matches) {
+                switch (match.getStatus()) {
+                    case SCHEDULED:
+                        upcoming.add(match);
+                        if (Boolean.TRUE.equals(match.getBettingEnabled())) {
+                            bettable.add(match);
+                        }
+                        break;
+                    case LIVE:
+                        live.add(match);
+                        break;
+                    case COMPLETED:
+                        completed.add(match);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            Collections.reverse(completed);
+
+            this.upcoming = Collections.unmodifiableList(upcoming);
+            this.live = Collections.unmodifiableList(live);
+            this.bettable = Collections.unmodifiableList(bettable);
+            this.completed = Collections.unmodifiableList(completed);
+            this.matches = matches;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
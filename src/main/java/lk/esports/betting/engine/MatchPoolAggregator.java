@@ -0,0 +1,241 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.entity.Bet;
+import lk.esports.betting.entity.Match;
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.Money;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory running totals of the stake placed on each team of each match.
+ * Counters hold cents in LongAdders so readers get pool sizes without locking or
+ * aggregate queries over the bets table. Cancelled bets are not part of a pool.
+ *
+ * The pools are loaded from the database before any bet is taken: placements and
+ * cancellations call {@link #ensureLoaded()} before they open their transaction, so
+ * no bet can commit while the load reads the bets table, and after the load every
+ * change arrives through {@link #addBet} or {@link #removeBet} exactly once.
+ */
+public class MatchPoolAggregator {
+
+    private static final Logger logger = Logger.getLogger(MatchPoolAggregator.class.getName());
+
+    private static final MatchPoolAggregator INSTANCE = new MatchPoolAggregator();
+
+    private volatile Map<Long, MatchPool> pools = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+    private volatile long lastRebuildMillis = 0;
+    private final LongAdder updates = new LongAdder();
+
+    private MatchPoolAggregator() {
+        MetricsRegistry.register("matchPools", this::snapshot);
+    }
+
+    public static MatchPoolAggregator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load every pool from the database and replace the current ones. Only call this
+     * while no bets are being placed or cancelled (application startup, benchmark
+     * setup); a bet applied during the load would be lost when the pools are swapped.
+     */
+    public synchronized void rebuild() {
+        EntityManager entityManager = null;
+        long started = System.currentTimeMillis();
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+
+            Map<Long, MatchPool> rebuilt = new ConcurrentHashMap<>();
+            List<Object[]> matches = entityManager.createQuery(
+                    "SELECT m.id, m.team1.id, m.team2.id FROM Match m", Object[].class).getResultList();
+            for (Object[] row : matches) {
+                rebuilt.put((Long) row[0], new MatchPool((Long) row[1], (Long) row[2]));
+            }
+
+            List<Object[]> totals = entityManager.createQuery(
+                    "SELECT b.match.id, b.selectedTeam.id, SUM(b.betAmount), COUNT(b) FROM Bet b " +
+                            "WHERE b.status <> :cancelled GROUP BY b.match.id, b.selectedTeam.id", Object[].class)
+                    .setParameter("cancelled", Bet.BetStatus.CANCELLED)
+                    .getResultList();
+            for (Object[] total : totals) {
+                MatchPool pool = rebuilt.get((Long) total[0]);
+                TeamPool teamPool = pool != null ? pool.forTeam((Long) total[1]) : null;
+                if (teamPool != null) {
+                    teamPool.cents.add(Money.toCents((BigDecimal) total[2]));
+                    teamPool.count.add((Long) total[3]);
+                }
+            }
+
+            pools = rebuilt;
+            loaded = true;
+            lastRebuildMillis = System.currentTimeMillis() - started;
+            logger.info("Match pools rebuilt for " + matches.size() + " matches in " + lastRebuildMillis + " ms");
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error rebuilding match pools", e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    /**
+     * Load the pools if the startup load did not. Called before a bet is placed or
+     * cancelled; throws if the pools still cannot be loaded, since a bet committed
+     * while a later load is running would otherwise be dropped.
+     */
+    public void ensureLoaded() {
+        if (!loaded) {
+            tryLoad();
+            if (!loaded) {
+                throw new IllegalStateException("Match pools are not loaded");
+            }
+        }
+    }
+
+    private synchronized void tryLoad() {
+        if (!loaded) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Start tracking a newly created match
+     */
+    public void registerMatch(Match match) {
+        if (match != null && match.getId() != null) {
+            pools.computeIfAbsent(match.getId(),
+                    id -> new MatchPool(match.getTeam1().getId(), match.getTeam2().getId()));
+        }
+    }
+
+    /**
+     * Add a committed bet to its match pool
+     */
+    public void addBet(Match match, Long teamId, BigDecimal amount) {
+        registerMatch(match);
+        apply(match.getId(), teamId, Money.toCents(amount), 1);
+    }
+
+    /**
+     * Remove a bet from its match pool once it has been cancelled
+     */
+    public void removeBet(Bet bet) {
+        if (bet == null || bet.getMatch() == null) {
+            return;
+        }
+        apply(bet.getMatch().getId(), bet.getSelectedTeam().getId(), -Money.toCents(bet.getBetAmount()), -1);
+    }
+
+    private void apply(Long matchId, Long teamId, long cents, int count) {
+        MatchPool pool = pools.get(matchId);
+        TeamPool teamPool = pool != null ? pool.forTeam(teamId) : null;
+        if (teamPool != null) {
+            teamPool.cents.add(cents);
+            teamPool.count.add(count);
+            updates.increment();
+        }
+    }
+
+    public long getTotalCents(Long matchId) {
+        MatchPool pool = getPool(matchId);
+        return pool != null ? pool.team1.cents.sum() + pool.team2.cents.sum() : 0L;
+    }
+
+    public long getTeamCents(Long matchId, Long teamId) {
+        TeamPool teamPool = getTeamPool(matchId, teamId);
+        return teamPool != null ? teamPool.cents.sum() : 0L;
+    }
+
+    public int getTotalCount(Long matchId) {
+        MatchPool pool = getPool(matchId);
+        return pool != null ? (int) (pool.team1.count.sum() + pool.team2.count.sum()) : 0;
+    }
+
+    public int getTeamCount(Long matchId, Long teamId) {
+        TeamPool teamPool = getTeamPool(matchId, teamId);
+        return teamPool != null ? (int) teamPool.count.sum() : 0;
+    }
+
+    /**
+     * Team ids of the match in team1, team2 order, empty if the match is unknown
+     */
+    public List<Long> getTeamIds(Long matchId) {
+        MatchPool pool = getPool(matchId);
+        return pool != null ? List.of(pool.team1.teamId, pool.team2.teamId) : List.of();
+    }
+
+    /**
+     * Stake per team of the match, empty if the match is unknown
+     */
+    public Map<Long, BigDecimal> getDistribution(Long matchId) {
+        Map<Long, BigDecimal> distribution = new HashMap<>();
+        MatchPool pool = getPool(matchId);
+        if (pool != null) {
+            distribution.put(pool.team1.teamId, Money.toBigDecimal(pool.team1.cents.sum()));
+            distribution.put(pool.team2.teamId, Money.toBigDecimal(pool.team2.cents.sum()));
+        }
+        return distribution;
+    }
+
+    private TeamPool getTeamPool(Long matchId, Long teamId) {
+        MatchPool pool = getPool(matchId);
+        return pool != null ? pool.forTeam(teamId) : null;
+    }
+
+    private MatchPool getPool(Long matchId) {
+        if (!loaded) {
+            tryLoad();
+        }
+        return matchId != null ? pools.get(matchId) : null;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("loaded", loaded);
+        snapshot.put("matches", pools.size());
+        snapshot.put("updates", updates.sum());
+        snapshot.put("lastRebuildMs", lastRebuildMillis);
+        return snapshot;
+    }
+
+    private static final class MatchPool {
+        private final TeamPool team1;
+        private final TeamPool team2;
+
+        private MatchPool(Long team1Id, Long team2Id) {
+            this.team1 = new TeamPool(team1Id);
+            this.team2 = new TeamPool(team2Id);
+        }
+
+        private TeamPool forTeam(Long teamId) {
+            if (team1.teamId.equals(teamId)) {
+                return team1;
+            }
+            return team2.teamId.equals(teamId) ? team2 : null;
+        }
+    }
+
+    private static final class TeamPool {
+        private final Long teamId;
+        private final LongAdder cents = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        private TeamPool(Long teamId) {
+            this.teamId = teamId;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.LatencyHistogram;
+import lk.esports.betting.utils.MetricsRegistry;
+import lk.esports.betting.utils.Odds;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool-driven odds for open matches.
+ *
+ * Placements and cancellations only mark their match dirty. Every TICK_MILLIS the
+ * dirty matches are repriced from the in-memory MatchPoolAggregator totals and the
+ * odds that actually changed are written in a single JDBC batch, so a burst of bets
+ * on one match costs one odds update per tick instead of one per bet, and the bets
+ * table is never scanned. Only matches still open for betting are updated.
+ */
+public class OddsEngine {
+
+    private static final Logger logger = Logger.getLogger(OddsEngine.class.getName());
+
+    private static final long TICK_MILLIS = Long.getLong("esports.odds.tickMillis", 250L);
+
+    private static final String UPDATE_ODDS_SQL =
+            "UPDATE matches SET team1_odds = ?, team2_odds = ?, updated_at = ? " +
+            "WHERE id = ? AND betting_enabled = TRUE AND status IN ('SCHEDULED', 'LIVE')";
+
+    private static final OddsEngine INSTANCE = new OddsEngine();
+
+    private final ScheduledExecutorService ticker;
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<Long, int[]> lastWritten = new ConcurrentHashMap<>();
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder repriced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+    private OddsEngine() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "odds-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        MetricsRegistry.register("oddsEngine", this::snapshot);
+    }
+
+    public static OddsEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Note that the match's pools changed; repriced on the next tick
+     */
+    public void markDirty(Long matchId) {
+        if (matchId != null) {
+            dirty.add(matchId);
+        }
+    }
+
+    /**
+     * Record odds written outside the engine, so the next tick compares against them
+     */
+    public void recordOdds(Long matchId, BigDecimal team1Odds, BigDecimal team2Odds) {
+        if (matchId != null && team1Odds != null && team2Odds != null) {
+            lastWritten.put(matchId, new int[]{Odds.fromBigDecimal(team1Odds), Odds.fromBigDecimal(team2Odds)});
+        }
+    }
+
+    /**
+     * Reprice every dirty match now, on the caller's thread. Returns the number of matches updated.
+     */
+    public int flush() {
+        return tick();
+    }
+
+    private synchronized int tick() {
+        if (dirty.isEmpty()) {
+            return 0;
+        }
+        ticks.increment();
+
+        MatchPoolAggregator pools = MatchPoolAggregator.getInstance();
+        List<Repricing> changes = new ArrayList<>();
+        for (Long matchId : dirty) {
+            dirty.remove(matchId);
+            List<Long> teams = pools.getTeamIds(matchId);
+            if (teams.isEmpty()) {
+                continue;
+            }
+            long totalCents = pools.getTotalCents(matchId);
+            int team1Odds = Odds.fromPool(totalCents, pools.getTeamCents(matchId, teams.get(0)));
+            int team2Odds = Odds.fromPool(totalCents, pools.getTeamCents(matchId, teams.get(1)));
+            repriced.increment();
+
+            int[] previous = lastWritten.get(matchId);
+            if (previous == null || previous[0] != team1Odds || previous[1] != team2Odds) {
+                changes.add(new Repricing(matchId, team1Odds, team2Odds));
+            }
+        }
+
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return write(changes);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error writing odds for " + changes.size() + " matches", e);
+            for (Repricing change : changes) {
+                dirty.add(change.matchId);
+            }
+            return 0;
+        }
+    }
+
+    private int write(List<Repricing> changes) {
+        EntityManager entityManager = null;
+        long started = System.nanoTime();
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            entityManager.getTransaction().begin();
+
+            int[] counts = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                try (PreparedStatement update = connection.prepareStatement(UPDATE_ODDS_SQL)) {
+                    for (Repricing change : changes) {
+                        update.setBigDecimal(1, Odds.toBigDecimal(change.team1Odds));
+                        update.setBigDecimal(2, Odds.toBigDecimal(change.team2Odds));
+                        update.setTimestamp(3, now);
+                        update.setLong(4, change.matchId);
+                        update.addBatch();
+                    }
+                    return update.executeBatch();
+                }
+            });
+            entityManager.getTransaction().commit();
+            batchLatency.record(System.nanoTime() - started);
+
+            Map<Long, BigDecimal[]> listed = new HashMap<>();
+            MatchEventFeed feed = MatchEventFeed.getInstance();
+            for (int i = 0; i < changes.size(); i++) {
+                Repricing change = changes.get(i);
+                // Closed matches keep their last odds
+                if (counts[i] == 0) {
+                    lastWritten.remove(change.matchId);
+                    continue;
+                }
+                lastWritten.put(change.matchId, new int[]{change.team1Odds, change.team2Odds});
+                BigDecimal team1Odds = Odds.toBigDecimal(change.team1Odds);
+                BigDecimal team2Odds = Odds.toBigDecimal(change.team2Odds);
+                feed.oddsChanged(change.matchId, team1Odds, team2Odds);
+                listed.put(change.matchId, new BigDecimal[]{team1Odds, team2Odds});
+            }
+            MatchListingCache.getInstance().updateOdds(listed);
+            written.add(listed.size());
+            return listed.size();
+        } catch (Exception e) {
+            if (entityManager != null && entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            throw new RuntimeException("Failed to write match odds", e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    public void shutdown() {
+        ticker.shutdown();
+        try {
+            if (!ticker.awaitTermination(5, TimeUnit.SECONDS)) {
+                ticker.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ticker.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("tickMillis", TICK_MILLIS);
+        snapshot.put("dirty", dirty.size());
+        snapshot.put("ticks", ticks.sum());
+        snapshot.put("repriced", repriced.sum());
+        snapshot.put("written", written.sum());
+        snapshot.put("batchLatency", batchLatency.snapshot());
+        return snapshot;
+    }
+
+    private static final class Repricing {
+        private final Long matchId;
+        private final int team1Odds;
+        private final int team2Odds;
+
+        private Repricing(Long matchId, int team1Odds, int team2Odds) {
+            this.matchId = matchId;
+            this.team1Odds = team1Odds;
+            this.team2Odds = team2Odds;
+        }
+    }
+}
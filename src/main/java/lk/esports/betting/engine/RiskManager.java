@@ -0,0 +1,330 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.entity.Bet;
+import lk.esports.betting.entity.Match;
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.Money;
+import lk.esports.betting.utils.Odds;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Live liability of every match with pending bets.
+ *
+ * For each outcome the liability is what the house pays out if that team wins
+ * minus every stake it has collected on the match. Placements reserve their stake
+ * and payout before the wallet is debited, so the limit check is a few arithmetic
+ * operations under the match's own lock rather than an aggregate query. A bet that
+ * would push the outcome's liability past MAX_LIABILITY is either rejected or, in
+ * REPRICE mode, placed at the highest odds that still fit under the limit, as long
+ * as those are no lower than the odds the bettor accepted.
+ */
+public class RiskManager {
+
+    private static final Logger logger = Logger.getLogger(RiskManager.class.getName());
+
+    private static final long MAX_LIABILITY_CENTS = Money.toCents(
+            new BigDecimal(System.getProperty("esports.risk.maxLiability", "50000.00")));
+
+    private static final Mode MODE = Mode.valueOf(System.getProperty("esports.risk.mode", "REJECT").toUpperCase());
+
+    private static final RiskManager INSTANCE = new RiskManager();
+
+    public enum Mode {
+        REJECT, REPRICE
+    }
+
+    private volatile Map<Long, MatchExposure> exposures = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder repriced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private RiskManager() {
+        MetricsRegistry.register("risk", this::snapshot);
+    }
+
+    public static RiskManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reload liabilities from the pending bets. Meant to run at startup, before bets are taken.
+     */
+    public synchronized void rebuild() {
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+
+            List<Object[]> rows = entityManager.createQuery(
+                    "SELECT b.match.id, b.match.team1.id, b.match.team2.id, b.selectedTeam.id, " +
+                            "SUM(b.betAmount), SUM(b.potentialWinnings), COUNT(b) FROM Bet b WHERE b.status = :pending " +
+                            "GROUP BY b.match.id, b.match.team1.id, b.match.team2.id, b.selectedTeam.id", Object[].class)
+                    .setParameter("pending", Bet.BetStatus.PENDING)
+                    .getResultList();
+
+            Map<Long, MatchExposure> rebuilt = new ConcurrentHashMap<>();
+            for (Object[] row : rows) {
+                MatchExposure exposure = rebuilt.computeIfAbsent((Long) row[0],
+                        id -> new MatchExposure((Long) row[1], (Long) row[2]));
+                exposure.apply((Long) row[3], Money.toCents((BigDecimal) row[4]),
+                        Money.toCents((BigDecimal) row[5]), ((Long) row[6]).intValue());
+            }
+
+            exposures = rebuilt;
+            loaded = true;
+            logger.info("Risk exposure rebuilt for " + rebuilt.size() + " matches");
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error rebuilding risk exposure", e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    private synchronized void ensureLoaded() {
+        if (!loaded) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Reserve the liability of a bet about to be placed at the given odds.
+     * Returns the reservation with the odds the bet must be placed at, which are lower
+     * than requested only in REPRICE mode. acceptedOdds, when given, are the lowest
+     * odds the bettor agreed to; without them a bet is never repriced. Throws
+     * IllegalArgumentException when the bet does not fit under the match's limit or
+     * the odds are below acceptedOdds.
+     */
+    public Reservation reserve(Match match, Long teamId, BigDecimal stake, BigDecimal odds, BigDecimal acceptedOdds) {
+        if (acceptedOdds != null && odds.compareTo(acceptedOdds) < 0) {
+            rejected.increment();
+            throw new IllegalArgumentException("The odds have changed to " + odds + ". Please review your bet.");
+        }
+        if (!loaded) {
+            ensureLoaded();
+        }
+        MatchExposure exposure = exposures.computeIfAbsent(match.getId(),
+                id -> new MatchExposure(match.getTeam1().getId(), match.getTeam2().getId()));
+        long stakeCents = Money.toCents(stake);
+
+        synchronized (exposure) {
+            long payoutCents = Money.multiplyByOdds(stakeCents, Odds.fromBigDecimal(odds));
+            if (exposure.liabilityAfter(teamId, stakeCents, payoutCents) <= MAX_LIABILITY_CENTS) {
+                exposure.apply(teamId, stakeCents, payoutCents, 1);
+                accepted.increment();
+                return new Reservation(match.getId(), teamId, stakeCents, payoutCents, odds);
+            }
+
+            if (MODE == Mode.REPRICE && acceptedOdds != null) {
+                // Largest payout that keeps this outcome at the limit
+                long maxPayoutCents = MAX_LIABILITY_CENTS + exposure.stakeCents + stakeCents - exposure.payoutFor(teamId);
+                int maxOdds = Odds.maxForPayout(stakeCents, maxPayoutCents);
+                BigDecimal repricedOdds = Odds.toBigDecimal(maxOdds);
+                if (maxOdds >= Odds.MIN && repricedOdds.compareTo(acceptedOdds) >= 0) {
+                    long repricedPayout = Money.multiplyByOdds(stakeCents, maxOdds);
+                    exposure.apply(teamId, stakeCents, repricedPayout, 1);
+                    repriced.increment();
+                    return new Reservation(match.getId(), teamId, stakeCents, repricedPayout, repricedOdds);
+                }
+            }
+        }
+
+        rejected.increment();
+        throw new IllegalArgumentException("This bet exceeds the risk limit for the match");
+    }
+
+    /**
+     * Give back a reservation whose placement did not commit
+     */
+    public void release(Reservation reservation) {
+        if (reservation != null) {
+            apply(reservation.matchId, reservation.teamId, -reservation.stakeCents, -reservation.payoutCents, -1);
+        }
+    }
+
+    /**
+     * Remove a pending bet that has been cancelled
+     */
+    public void releaseBet(Bet bet) {
+        if (!loaded || bet == null || bet.getMatch() == null) {
+            return;
+        }
+        apply(bet.getMatch().getId(), bet.getSelectedTeam().getId(),
+                -Money.toCents(bet.getBetAmount()), -Money.toCents(bet.getPotentialWinnings()), -1);
+    }
+
+    /**
+     * Drop a match whose bets have all been settled
+     */
+    public void clearMatch(Long matchId) {
+        if (matchId != null) {
+            exposures.remove(matchId);
+        }
+    }
+
+    private void apply(Long matchId, Long teamId, long stakeCents, long payoutCents, int bets) {
+        MatchExposure exposure = exposures.get(matchId);
+        if (exposure != null) {
+            synchronized (exposure) {
+                exposure.apply(teamId, stakeCents, payoutCents, bets);
+            }
+        }
+    }
+
+    /**
+     * Worst-case liability of the match in its currency, zero if it has no pending bets
+     */
+    public BigDecimal getWorstCaseLiability(Long matchId) {
+        MatchExposure exposure = getExposure(matchId);
+        if (exposure == null) {
+            return BigDecimal.ZERO;
+        }
+        synchronized (exposure) {
+            return Money.toBigDecimal(Math.max(0L, exposure.worstCaseLiability()));
+        }
+    }
+
+    public boolean isAtLimit(Long matchId) {
+        MatchExposure exposure = getExposure(matchId);
+        if (exposure == null) {
+            return false;
+        }
+        synchronized (exposure) {
+            return exposure.worstCaseLiability() >= MAX_LIABILITY_CENTS;
+        }
+    }
+
+    /**
+     * Stake, payout and liability per outcome of one match, empty if it has no pending bets
+     */
+    public Map<String, Object> getMatchExposure(Long matchId) {
+        return exposureSnapshot(matchId, getExposure(matchId));
+    }
+
+    /**
+     * Exposure of every tracked match, highest worst-case liability first
+     */
+    public List<Map<String, Object>> getAllExposures() {
+        if (!loaded) {
+            ensureLoaded();
+        }
+        List<Map<String, Object>> all = new ArrayList<>();
+        for (Map.Entry<Long, MatchExposure> entry : exposures.entrySet()) {
+            all.add(exposureSnapshot(entry.getKey(), entry.getValue()));
+        }
+        all.sort((a, b) -> ((BigDecimal) b.get("worstCaseLiability")).compareTo((BigDecimal) a.get("worstCaseLiability")));
+        return all;
+    }
+
+    private MatchExposure getExposure(Long matchId) {
+        if (!loaded) {
+            ensureLoaded();
+        }
+        return matchId != null ? exposures.get(matchId) : null;
+    }
+
+    private Map<String, Object> exposureSnapshot(Long matchId, MatchExposure exposure) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        if (exposure == null) {
+            return snapshot;
+        }
+        synchronized (exposure) {
+            snapshot.put("matchId", matchId);
+            snapshot.put("bets", exposure.bets);
+            snapshot.put("totalStake", Money.toBigDecimal(exposure.stakeCents));
+            snapshot.put("team1Id", exposure.team1Id);
+            snapshot.put("team1Payout", Money.toBigDecimal(exposure.team1PayoutCents));
+            snapshot.put("team1Liability", Money.toBigDecimal(exposure.team1PayoutCents - exposure.stakeCents));
+            snapshot.put("team2Id", exposure.team2Id);
+            snapshot.put("team2Payout", Money.toBigDecimal(exposure.team2PayoutCents));
+            snapshot.put("team2Liability", Money.toBigDecimal(exposure.team2PayoutCents - exposure.stakeCents));
+            snapshot.put("worstCaseLiability", Money.toBigDecimal(exposure.worstCaseLiability()));
+            snapshot.put("limit", Money.toBigDecimal(MAX_LIABILITY_CENTS));
+        }
+        return snapshot;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("mode", MODE.name());
+        snapshot.put("maxLiability", Money.toBigDecimal(MAX_LIABILITY_CENTS));
+        snapshot.put("trackedMatches", exposures.size());
+        snapshot.put("accepted", accepted.sum());
+        snapshot.put("repriced", repriced.sum());
+        snapshot.put("rejected", rejected.sum());
+        return snapshot;
+    }
+
+    /**
+     * Liability held for one placement until it commits or is released
+     */
+    public static final class Reservation {
+        private final Long matchId;
+        private final Long teamId;
+        private final long stakeCents;
+        private final long payoutCents;
+        private final BigDecimal odds;
+
+        private Reservation(Long matchId, Long teamId, long stakeCents, long payoutCents, BigDecimal odds) {
+            this.matchId = matchId;
+            this.teamId = teamId;
+            this.stakeCents = stakeCents;
+            this.payoutCents = payoutCents;
+            this.odds = odds;
+        }
+
+        public BigDecimal getOdds() { return odds; }
+    }
+
+    /**
+     * Totals of one match; guarded by its own monitor
+     */
+    private static final class MatchExposure {
+        private final Long team1Id;
+        private final Long team2Id;
+        private long stakeCents;
+        private long team1PayoutCents;
+        private long team2PayoutCents;
+        private int bets;
+
+        private MatchExposure(Long team1Id, Long team2Id) {
+            this.team1Id = team1Id;
+            this.team2Id = team2Id;
+        }
+
+        private long payoutFor(Long teamId) {
+            return team1Id.equals(teamId) ? team1PayoutCents : team2PayoutCents;
+        }
+
+        private long liabilityAfter(Long teamId, long addedStakeCents, long addedPayoutCents) {
+            return payoutFor(teamId) + addedPayoutCents - (stakeCents + addedStakeCents);
+        }
+
+        private long worstCaseLiability() {
+            return Math.max(team1PayoutCents, team2PayoutCents) - stakeCents;
+        }
+
+        private void apply(Long teamId, long addedStakeCents, long addedPayoutCents, int addedBets) {
+            stakeCents += addedStakeCents;
+            if (team1Id.equals(teamId)) {
+                team1PayoutCents += addedPayoutCents;
+            } else {
+                team2PayoutCents += addedPayoutCents;
+            }
+            bets += addedBets;
+        }
+    }
+}
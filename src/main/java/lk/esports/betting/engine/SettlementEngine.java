@@ -0,0 +1,320 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.entity.Match;
+import lk.esports.betting.entity.SettlementCheckpoint;
+import lk.esports.betting.entity.WalletLedgerEntry;
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.Money;
+import lk.esports.betting.utils.LatencyHistogram;
+import lk.esports.betting.utils.MetricsRegistry;
+import lk.esports.betting.wallet.BalanceCache;
+import lk.esports.betting.wallet.WalletEngine;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Set-based settlement of the bets of a completed match.
+ *
+ * Pending bets are processed in id order, one chunk per transaction: the chunk's
+ * rows are locked, flipped to WON/LOST with two UPDATE statements, winners are
+ * credited and their WINNINGS transactions inserted in JDBC batches, and the
+ * match's SettlementCheckpoint is advanced before the commit. A crash rolls back
+ * the current chunk only, and since only PENDING rows are ever selected a
+ * restarted settlement can never pay a bet twice.
+ */
+public class SettlementEngine {
+
+    private static final Logger logger = Logger.getLogger(SettlementEngine.class.getName());
+
+    private static final int CHUNK_SIZE = Integer.getInteger("esports.settlement.chunkSize", 500);
+
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id, user_id, selected_team_id, potential_winnings FROM bets " +
+            "WHERE match_id = ? AND status = 'PENDING' AND id > ? ORDER BY id LIMIT ? FOR UPDATE";
+
+    private static final String MARK_WON_SQL =
+            "UPDATE bets SET status = 'WON', result_processed_at = ? " +
+            "WHERE match_id = ? AND status = 'PENDING' AND id > ? AND id <= ? AND selected_team_id = ?";
+
+    private static final String MARK_LOST_SQL =
+            "UPDATE bets SET status = 'LOST', result_processed_at = ? " +
+            "WHERE match_id = ? AND status = 'PENDING' AND id > ? AND id <= ? AND selected_team_id <> ?";
+
+    private static final String INSERT_WINNINGS_SQL =
+            "INSERT INTO transactions (user_id, transaction_type, amount, description, reference_id, status, created_at) " +
+            "VALUES (?, 'WINNINGS', ?, ?, ?, 'COMPLETED', ?)";
+
+    private static final SettlementEngine INSTANCE = new SettlementEngine();
+
+    private final Set<Long> matchesInProgress = ConcurrentHashMap.newKeySet();
+    private final LongAdder betsSettled = new LongAdder();
+    private final LongAdder centsPaid = new LongAdder();
+    private final LongAdder matchesSettled = new LongAdder();
+    private final LatencyHistogram chunkLatency = new LatencyHistogram();
+
+    private SettlementEngine() {
+        MetricsRegistry.register("settlement", this::snapshot);
+    }
+
+    public static SettlementEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Settle every pending bet of a completed match.
+     * Returns null if the match does not exist, has no result yet or is
+     * already being settled by another thread.
+     */
+    public SettlementResult settleMatch(Long matchId) {
+        if (!matchesInProgress.add(matchId)) {
+            logger.info("Match " + matchId + " is already being settled");
+            return null;
+        }
+
+        EntityManager entityManager = null;
+        long started = System.currentTimeMillis();
+
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+
+            Match match = entityManager.find(Match.class, matchId);
+            if (match == null || !match.isCompleted() || match.getWinnerTeam() == null) {
+                logger.warning("Cannot settle bets for incomplete match: " + matchId);
+                return null;
+            }
+
+            Long winnerTeamId = match.getWinnerTeam().getId();
+            String description = "Winnings from bet on " + match.getMatchTitle();
+            SettlementResult result = new SettlementResult(matchId);
+
+            entityManager.getTransaction().begin();
+            SettlementCheckpoint checkpoint = entityManager.find(SettlementCheckpoint.class, matchId);
+            if (checkpoint == null) {
+                checkpoint = new SettlementCheckpoint(matchId, winnerTeamId);
+                entityManager.persist(checkpoint);
+            } else if (!checkpoint.getWinnerTeamId().equals(winnerTeamId)) {
+                throw new IllegalStateException("Match " + matchId + " was partially settled for team "
+                        + checkpoint.getWinnerTeamId() + " but the winner is now " + winnerTeamId);
+            }
+            entityManager.getTransaction().commit();
+
+            while (true) {
+                long chunkStarted = System.nanoTime();
+                entityManager.getTransaction().begin();
+
+                long fromBetId = checkpoint.getLastBetId();
+                ChunkResult chunk = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                        settleChunk(connection, matchId, winnerTeamId, fromBetId, description));
+
+                if (chunk.settled == 0) {
+                    checkpoint.markCompleted();
+                    entityManager.getTransaction().commit();
+                    break;
+                }
+
+                checkpoint.advance(chunk.lastBetId, chunk.won, chunk.lost, Money.toBigDecimal(chunk.paidCents));
+                entityManager.getTransaction().commit();
+                BalanceCache.getInstance().invalidateAll(chunk.credited);
+                notifyWatchers(matchId, chunk);
+
+                result.add(chunk);
+                betsSettled.add(chunk.settled);
+                centsPaid.add(chunk.paidCents);
+                chunkLatency.record(System.nanoTime() - chunkStarted);
+            }
+
+            RiskManager.getInstance().clearMatch(matchId);
+            matchesSettled.increment();
+            result.elapsedMillis = System.currentTimeMillis() - started;
+            logger.info("Settled match " + matchId + ": " + result);
+            return result;
+
+        } catch (Exception e) {
+            if (entityManager != null && entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            logger.log(Level.SEVERE, "Error settling bets for match: " + matchId, e);
+            throw new RuntimeException("Failed to settle match " + matchId, e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+            matchesInProgress.remove(matchId);
+        }
+    }
+
+    private ChunkResult settleChunk(Connection connection, Long matchId, Long winnerTeamId,
+                                    long fromBetId, String description) throws SQLException {
+        ChunkResult chunk = new ChunkResult();
+        List<long[]> winners = new ArrayList<>();
+        UserEventFeed userEvents = UserEventFeed.getInstance();
+
+        try (PreparedStatement select = connection.prepareStatement(SELECT_CHUNK_SQL)) {
+            select.setLong(1, matchId);
+            select.setLong(2, fromBetId);
+            select.setInt(3, CHUNK_SIZE);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    long betId = rs.getLong(1);
+                    long userId = rs.getLong(2);
+                    chunk.lastBetId = betId;
+                    chunk.settled++;
+                    if (rs.getLong(3) == winnerTeamId) {
+                        long winningsCents = Money.toCents(rs.getBigDecimal(4));
+                        winners.add(new long[]{betId, userId, winningsCents});
+                        chunk.won++;
+                        chunk.paidCents += winningsCents;
+                        if (userEvents.isWatched(userId)) {
+                            chunk.watched.add(new long[]{betId, userId, winningsCents});
+                        }
+                    } else {
+                        chunk.lost++;
+                        if (userEvents.isWatched(userId)) {
+                            chunk.watched.add(new long[]{betId, userId, -1L});
+                        }
+                    }
+                }
+            }
+        }
+
+        if (chunk.settled == 0) {
+            return chunk;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        markRange(connection, MARK_WON_SQL, now, matchId, fromBetId, chunk.lastBetId, winnerTeamId);
+        markRange(connection, MARK_LOST_SQL, now, matchId, fromBetId, chunk.lastBetId, winnerTeamId);
+
+        if (!winners.isEmpty()) {
+            Map<Long, Long> centsByUser = new TreeMap<>();
+            for (long[] winner : winners) {
+                centsByUser.merge(winner[1], winner[2], Long::sum);
+            }
+            WalletEngine.creditBatch(connection, centsByUser, WalletLedgerEntry.EntryType.WINNINGS);
+            chunk.credited.addAll(centsByUser.keySet());
+
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_WINNINGS_SQL)) {
+                for (long[] winner : winners) {
+                    insert.setLong(1, winner[1]);
+                    insert.setBigDecimal(2, Money.toBigDecimal(winner[2]));
+                    insert.setString(3, description);
+                    insert.setLong(4, winner[0]);
+                    insert.setTimestamp(5, now);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Tell connected users about their settled bets once the chunk is committed
+     */
+    private void notifyWatchers(Long matchId, ChunkResult chunk) {
+        UserEventFeed userEvents = UserEventFeed.getInstance();
+        for (long[] bet : chunk.watched) {
+            boolean won = bet[2] >= 0;
+            userEvents.betSettled(bet[1], bet[0], matchId, won, won ? Money.toBigDecimal(bet[2]) : BigDecimal.ZERO);
+        }
+    }
+
+    private void markRange(Connection connection, String sql, Timestamp now, Long matchId,
+                           long fromBetId, long toBetId, Long winnerTeamId) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(sql)) {
+            update.setTimestamp(1, now);
+            update.setLong(2, matchId);
+            update.setLong(3, fromBetId);
+            update.setLong(4, toBetId);
+            update.setLong(5, winnerTeamId);
+            update.executeUpdate();
+        }
+    }
+
+    public int getMatchesInProgress() {
+        return matchesInProgress.size();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("chunkSize", CHUNK_SIZE);
+        snapshot.put("matchesSettled", matchesSettled.sum());
+        snapshot.put("betsSettled", betsSettled.sum());
+        snapshot.put("amountPaid", Money.toBigDecimal(centsPaid.sum()));
+        snapshot.put("chunkLatency", chunkLatency.snapshot());
+        return snapshot;
+    }
+
+    private static final class ChunkResult {
+        private long lastBetId;
+        private int settled;
+        private int won;
+        private int lost;
+        private long paidCents;
+        private final List<long[]> watched = new ArrayList<>();
+        private final List<Long> credited = new ArrayList<>();
+    }
+
+    /**
+     * Outcome of one settlement run
+     */
+    public static final class SettlementResult {
+        private final Long matchId;
+        private long betsWon;
+        private long betsLost;
+        private long paidCents;
+        private int chunks;
+        private long elapsedMillis;
+
+        private SettlementResult(Long matchId) {
+            this.matchId = matchId;
+        }
+
+        private void add(ChunkResult chunk) {
+            betsWon += chunk.won;
+            betsLost += chunk.lost;
+            paidCents += chunk.paidCents;
+            chunks++;
+        }
+
+        public Long getMatchId() { return matchId; }
+        public long getBetsWon() { return betsWon; }
+        public long getBetsLost() { return betsLost; }
+        public long getBetsSettled() { return betsWon + betsLost; }
+        public BigDecimal getAmountPaid() { return Money.toBigDecimal(paidCents); }
+        public int getChunks() { return chunks; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return "SettlementResult{" +
+                    "matchId=" + matchId +
+                    ", betsWon=" + betsWon +
+                    ", betsLost=" + betsLost +
+                    ", amountPaid=" + getAmountPaid() +
+                    ", chunks=" + chunks +
+                    ", elapsedMillis=" + elapsedMillis +
+                    '}';
+        }
+    }
+}
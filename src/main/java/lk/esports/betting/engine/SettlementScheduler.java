@@ -0,0 +1,160 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.entity.Bet;
+import lk.esports.betting.entity.Match;
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Settles every completed match that still has pending bets, several matches at a time.
+ * Work is bounded by a fixed worker pool with a bounded queue (the submitting thread runs
+ * tasks itself when the queue is full), and SettlementEngine guarantees that a match is
+ * never settled by two threads at once.
+ */
+public class SettlementScheduler {
+
+    private static final Logger logger = Logger.getLogger(SettlementScheduler.class.getName());
+
+    private static final int THREADS = Integer.getInteger("esports.settlement.threads", 4);
+    private static final int QUEUE_SIZE = Integer.getInteger("esports.settlement.queueSize", 1000);
+
+    private static final SettlementScheduler INSTANCE = new SettlementScheduler();
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger queuedMatches = new AtomicInteger();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder matchesSettled = new LongAdder();
+    private final LongAdder matchesFailed = new LongAdder();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    private SettlementScheduler() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+                    Thread thread = new Thread(runnable, "settlement-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        MetricsRegistry.register("settlementScheduler", this::snapshot);
+    }
+
+    public static SettlementScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Settle all completed matches with pending bets and wait for them to finish
+     */
+    public Map<String, Object> settlePendingMatches() {
+        long started = System.currentTimeMillis();
+        List<Long> matchIds = findSettleableMatchIds();
+
+        List<Future<SettlementEngine.SettlementResult>> futures = new ArrayList<>(matchIds.size());
+        queuedMatches.addAndGet(matchIds.size());
+        for (Long matchId : matchIds) {
+            futures.add(executor.submit(() -> {
+                try {
+                    return SettlementEngine.getInstance().settleMatch(matchId);
+                } finally {
+                    queuedMatches.decrementAndGet();
+                }
+            }));
+        }
+
+        long betsSettled = 0;
+        int settled = 0;
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                SettlementEngine.SettlementResult result = futures.get(i).get();
+                if (result != null) {
+                    betsSettled += result.getBetsSettled();
+                    settled++;
+                }
+            } catch (ExecutionException e) {
+                failed++;
+                logger.log(Level.SEVERE, "Settlement failed for match: " + matchIds.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warning("Interrupted while waiting for settlement of match: " + matchIds.get(i));
+                break;
+            }
+        }
+
+        runs.increment();
+        matchesSettled.add(settled);
+        matchesFailed.add(failed);
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - started);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("matchesFound", matchIds.size());
+        summary.put("matchesSettled", settled);
+        summary.put("matchesFailed", failed);
+        summary.put("betsSettled", betsSettled);
+        summary.put("elapsedMs", elapsed);
+        summary.put("betsPerSecond", betsSettled * 1000 / elapsed);
+        lastRun = summary;
+
+        logger.info("Pending bet settlement run finished: " + summary);
+        return summary;
+    }
+
+    private List<Long> findSettleableMatchIds() {
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            return entityManager.createQuery(
+                            "SELECT DISTINCT b.match.id FROM Bet b WHERE b.status = :pending AND b.match.status = :completed",
+                            Long.class)
+                    .setParameter("pending", Bet.BetStatus.PENDING)
+                    .setParameter("completed", Match.MatchStatus.COMPLETED)
+                    .getResultList();
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("threads", THREADS);
+        snapshot.put("activeWorkers", executor.getActiveCount());
+        snapshot.put("queuedMatches", queuedMatches.get());
+        snapshot.put("matchesInProgress", SettlementEngine.getInstance().getMatchesInProgress());
+        snapshot.put("runs", runs.sum());
+        snapshot.put("matchesSettled", matchesSettled.sum());
+        snapshot.put("matchesFailed", matchesFailed.sum());
+        snapshot.put("lastRun", lastRun);
+        return snapshot;
+    }
+}
@@ -0,0 +1,108 @@
+package lk.esports.betting.engine;
+
+import lk.esports.betting.utils.MetricsRegistry;
+
+import com.google.gson.Gson;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-user notifications (bet settlement results) for users with an open live
+ * connection. Producers check isWatched() first, so nothing is rendered for the
+ * vast majority of users who are not connected.
+ */
+public class UserEventFeed {
+
+    private static final Logger logger = Logger.getLogger(UserEventFeed.class.getName());
+
+    private static final UserEventFeed INSTANCE = new UserEventFeed();
+
+    /**
+     * Receives events on the producer's thread. Implementations must not block.
+     */
+    public interface Listener {
+        void onUserEvent(Long userId, String json);
+    }
+
+    private final Gson gson = new Gson();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Long, Integer> watchers = new ConcurrentHashMap<>();
+    private final LongAdder published = new LongAdder();
+
+    private UserEventFeed() {
+        MetricsRegistry.register("userEventFeed", this::snapshot);
+    }
+
+    public static UserEventFeed getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Register one more open connection for the user
+     */
+    public void watch(Long userId) {
+        watchers.merge(userId, 1, Integer::sum);
+    }
+
+    /**
+     * Release a connection registered with watch()
+     */
+    public void unwatch(Long userId) {
+        watchers.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public boolean isWatched(Long userId) {
+        return !watchers.isEmpty() && watchers.containsKey(userId);
+    }
+
+    /**
+     * Tell a connected user that one of their bets was settled
+     */
+    public void betSettled(Long userId, Long betId, Long matchId, boolean won, BigDecimal payout) {
+        if (!isWatched(userId)) {
+            return;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", "BET_SETTLED");
+        payload.put("betId", betId);
+        payload.put("matchId", matchId);
+        payload.put("status", won ? "WON" : "LOST");
+        payload.put("payout", won ? payout : BigDecimal.ZERO);
+        payload.put("timestamp", System.currentTimeMillis());
+        publish(userId, gson.toJson(payload));
+    }
+
+    private void publish(Long userId, String json) {
+        published.increment();
+        for (Listener listener : listeners) {
+            try {
+                listener.onUserEvent(userId, json);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "User event listener failed", e);
+            }
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("watchedUsers", watchers.size());
+        snapshot.put("published", published.sum());
+        return snapshot;
+    }
+}
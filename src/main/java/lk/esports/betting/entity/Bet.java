@@ -1,5 +1,8 @@
 package lk.esports.betting.entity;
 
+import lk.esports.betting.utils.Money;
+import lk.esports.betting.utils.Odds;
+
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
@@ -9,7 +12,13 @@ import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
 @Entity
-@Table(name = "bets")
+@Table(name = "bets", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_bets_user_idempotency_key", columnNames = {"user_id", "idempotency_key"})
+}, indexes = {
+        @Index(name = "idx_bets_user_placed", columnList = "user_id, bet_placed_at, id"),
+        @Index(name = "idx_bets_user_status_placed", columnList = "user_id, status, bet_placed_at, id"),
+        @Index(name = "idx_bets_placed", columnList = "bet_placed_at, id")
+})
 @NamedQueries({
         @NamedQuery(name = "Bet.findByUser",
                 query = "SELECT b FROM Bet b WHERE b.user.id = :userId ORDER BY b.betPlacedAt DESC"),
@@ -72,6 +81,14 @@ public class Bet {
     @Column(name = "result_processed_at")
     private LocalDateTime resultProcessedAt;
 
+    // Client-supplied key that makes retried placements return this bet
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
+
+    // Set when a placement request was answered with this existing bet
+    @Transient
+    private boolean replayed;
+
     // Enums
     public enum BetStatus {
         PENDING, WON, LOST, CANCELLED
@@ -106,7 +123,7 @@ public class Bet {
     // Business methods
     public BigDecimal calculatePotentialWinnings() {
         if (betAmount != null && oddsAtBet != null) {
-            return betAmount.multiply(oddsAtBet).setScale(2, java.math.RoundingMode.HALF_UP);
+            return Money.toBigDecimal(Money.multiplyByOdds(Money.toCents(betAmount), Odds.fromBigDecimal(oddsAtBet)));
         }
         return BigDecimal.ZERO;
     }
@@ -259,6 +276,12 @@ public class Bet {
     public LocalDateTime getResultProcessedAt() { return resultProcessedAt; }
     public void setResultProcessedAt(LocalDateTime resultProcessedAt) { this.resultProcessedAt = resultProcessedAt; }
 
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
+    public boolean isReplayed() { return replayed; }
+    public void markReplayed() { this.replayed = true; }
+
     @Override
     public String toString() {
         return "Bet{" +
@@ -0,0 +1,128 @@
+package lk.esports.betting.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the bulk settlement of one match. Bets are settled in id order,
+ * so lastBetId marks where a restarted settlement resumes.
+ */
+@Entity
+@Table(name = "settlement_checkpoints")
+public class SettlementCheckpoint {
+
+    @Id
+    @Column(name = "match_id")
+    private Long matchId;
+
+    @Column(name = "winner_team_id", nullable = false)
+    @NotNull(message = "Winner team is required")
+    private Long winnerTeamId;
+
+    @Column(name = "last_bet_id", nullable = false)
+    private Long lastBetId = 0L;
+
+    @Column(name = "bets_won", nullable = false)
+    private Long betsWon = 0L;
+
+    @Column(name = "bets_lost", nullable = false)
+    private Long betsLost = 0L;
+
+    @Column(name = "amount_paid", nullable = false, precision = 14, scale = 2)
+    private BigDecimal amountPaid = BigDecimal.ZERO;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private SettlementStatus status = SettlementStatus.IN_PROGRESS;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Enums
+    public enum SettlementStatus {
+        IN_PROGRESS, COMPLETED
+    }
+
+    // Constructors
+    public SettlementCheckpoint() {
+        this.startedAt = LocalDateTime.now();
+        this.updatedAt = this.startedAt;
+    }
+
+    public SettlementCheckpoint(Long matchId, Long winnerTeamId) {
+        this();
+        this.matchId = matchId;
+        this.winnerTeamId = winnerTeamId;
+    }
+
+    // Business methods
+    public void advance(long lastBetId, long won, long lost, BigDecimal paid) {
+        this.lastBetId = lastBetId;
+        this.betsWon += won;
+        this.betsLost += lost;
+        this.amountPaid = this.amountPaid.add(paid);
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public void markCompleted() {
+        this.status = SettlementStatus.COMPLETED;
+        this.completedAt = LocalDateTime.now();
+        this.updatedAt = this.completedAt;
+    }
+
+    public boolean isCompleted() {
+        return status == SettlementStatus.COMPLETED;
+    }
+
+    // Getters and Setters
+    public Long getMatchId() { return matchId; }
+    public void setMatchId(Long matchId) { this.matchId = matchId; }
+
+    public Long getWinnerTeamId() { return winnerTeamId; }
+    public void setWinnerTeamId(Long winnerTeamId) { this.winnerTeamId = winnerTeamId; }
+
+    public Long getLastBetId() { return lastBetId; }
+    public void setLastBetId(Long lastBetId) { this.lastBetId = lastBetId; }
+
+    public Long getBetsWon() { return betsWon; }
+    public void setBetsWon(Long betsWon) { this.betsWon = betsWon; }
+
+    public Long getBetsLost() { return betsLost; }
+    public void setBetsLost(Long betsLost) { this.betsLost = betsLost; }
+
+    public BigDecimal getAmountPaid() { return amountPaid; }
+    public void setAmountPaid(BigDecimal amountPaid) { this.amountPaid = amountPaid; }
+
+    public SettlementStatus getStatus() { return status; }
+    public void setStatus(SettlementStatus status) { this.status = status; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+
+    @Override
+    public String toString() {
+        return "SettlementCheckpoint{" +
+                "matchId=" + matchId +
+                ", winnerTeamId=" + winnerTeamId +
+                ", lastBetId=" + lastBetId +
+                ", betsWon=" + betsWon +
+                ", betsLost=" + betsLost +
+                ", amountPaid=" + amountPaid +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -1,6 +1,8 @@
 package lk.esports.betting.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
@@ -10,6 +12,8 @@ import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "tournament")
 @Table(name = "tournaments")
 @NamedQueries({
         @NamedQuery(name = "Tournament.findAll",
@@ -8,7 +8,9 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_user_created", columnList = "user_id, created_at, id")
+})
 @NamedQueries({
         @NamedQuery(name = "Transaction.findByUser",
                 query = "SELECT t FROM Transaction t WHERE t.user.id = :userId ORDER BY t.createdAt DESC"),
@@ -46,7 +46,9 @@ public class User {
     @Column(length = 20)
     private String phone;
 
-    @Column(name = "wallet_balance", precision = 10, scale = 2)
+    // Only WalletEngine changes the balance, with an atomic UPDATE; merging a User must
+    // not write back the balance it was loaded with
+    @Column(name = "wallet_balance", precision = 10, scale = 2, updatable = false)
     private BigDecimal walletBalance = BigDecimal.ZERO;
 
     @Column(name = "is_active")
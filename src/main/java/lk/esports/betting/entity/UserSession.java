@@ -5,7 +5,11 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_sessions")
+@Table(name = "user_sessions", indexes = {
+        @Index(name = "idx_user_sessions_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_user_sessions_active", columnList = "is_active, expires_at"),
+        @Index(name = "idx_user_sessions_revoked_at", columnList = "revoked_at")
+})
 @NamedQueries({
         @NamedQuery(name = "UserSession.findByToken",
                 query = "SELECT s FROM UserSession s WHERE s.sessionToken = :token"),
@@ -48,6 +52,9 @@ public class UserSession {
     @Column(name = "is_active")
     private Boolean isActive = true;
 
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+
     // Constructors
     public UserSession() {
         this.createdAt = LocalDateTime.now();
@@ -77,6 +84,7 @@ public class UserSession {
 
     public void invalidate() {
         this.isActive = false;
+        this.revokedAt = LocalDateTime.now();
     }
 
     public void extendSession(int hours) {
@@ -155,6 +163,14 @@ public class UserSession {
         this.isActive = isActive;
     }
 
+    public LocalDateTime getRevokedAt() {
+        return revokedAt;
+    }
+
+    public void setRevokedAt(LocalDateTime revokedAt) {
+        this.revokedAt = revokedAt;
+    }
+
     @Override
     public String toString() {
         return "UserSession{" +
@@ -0,0 +1,71 @@
+package lk.esports.betting.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One append-only change to a wallet balance. Credits are positive and debits
+ * negative, so a balance is its last snapshot plus the sum of the entries after it.
+ * Entries are written by WalletEngine in the same transaction as the balance update
+ * and are never updated or deleted.
+ */
+@Entity
+@Table(name = "wallet_ledger", indexes = {
+        @Index(name = "idx_wallet_ledger_user_id", columnList = "user_id, id")
+})
+public class WalletLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, updatable = false)
+    @NotNull(message = "User is required")
+    private Long userId;
+
+    @Column(name = "amount", nullable = false, updatable = false, precision = 12, scale = 2)
+    @NotNull(message = "Amount is required")
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, updatable = false, length = 20)
+    @NotNull(message = "Entry type is required")
+    private EntryType entryType;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Enums
+    public enum EntryType {
+        DEPOSIT, WITHDRAWAL, BET_STAKE, WINNINGS, REFUND, ADJUSTMENT
+    }
+
+    // Constructors
+    public WalletLedgerEntry() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public Long getId() { return id; }
+
+    public Long getUserId() { return userId; }
+
+    public BigDecimal getAmount() { return amount; }
+
+    public EntryType getEntryType() { return entryType; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    @Override
+    public String toString() {
+        return "WalletLedgerEntry{" +
+                "id=" + id +
+                ", userId=" + userId +
+                ", amount=" + amount +
+                ", entryType=" + entryType +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
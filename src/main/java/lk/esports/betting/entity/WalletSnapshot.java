@@ -0,0 +1,84 @@
+package lk.esports.betting.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Latest verified balance of one wallet. balance is the wallet balance after ledger
+ * entry lastEntryId, so reconciling the account only has to sum the entries after it.
+ * mismatched is set while the wallet disagrees with its ledger.
+ */
+@Entity
+@Table(name = "wallet_snapshots")
+public class WalletSnapshot {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "balance", nullable = false, precision = 12, scale = 2)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private Long lastEntryId = 0L;
+
+    @Column(name = "entry_count", nullable = false)
+    private Long entryCount = 0L;
+
+    @Column(name = "mismatched", nullable = false)
+    private Boolean mismatched = false;
+
+    @Column(name = "taken_at")
+    private LocalDateTime takenAt;
+
+    // Constructors
+    public WalletSnapshot() {
+        this.takenAt = LocalDateTime.now();
+    }
+
+    public WalletSnapshot(Long userId) {
+        this();
+        this.userId = userId;
+    }
+
+    // Business methods
+    public void advance(BigDecimal balance, long lastEntryId, long entries) {
+        this.balance = balance;
+        this.lastEntryId = lastEntryId;
+        this.entryCount += entries;
+        this.mismatched = false;
+        this.takenAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public BigDecimal getBalance() { return balance; }
+    public void setBalance(BigDecimal balance) { this.balance = balance; }
+
+    public Long getLastEntryId() { return lastEntryId; }
+    public void setLastEntryId(Long lastEntryId) { this.lastEntryId = lastEntryId; }
+
+    public Long getEntryCount() { return entryCount; }
+    public void setEntryCount(Long entryCount) { this.entryCount = entryCount; }
+
+    public Boolean getMismatched() { return mismatched; }
+    public void setMismatched(Boolean mismatched) { this.mismatched = mismatched; }
+
+    public LocalDateTime getTakenAt() { return takenAt; }
+    public void setTakenAt(LocalDateTime takenAt) { this.takenAt = takenAt; }
+
+    @Override
+    public String toString() {
+        return "WalletSnapshot{" +
+                "userId=" + userId +
+                ", balance=" + balance +
+                ", lastEntryId=" + lastEntryId +
+                ", entryCount=" + entryCount +
+                ", mismatched=" + mismatched +
+                ", takenAt=" + takenAt +
+                '}';
+    }
+}
@@ -0,0 +1,44 @@
+package lk.esports.betting.security;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * BCrypt with a configurable log2 cost; hashes look like $2a$10$...
+ */
+public class BCryptPasswordHasher implements PasswordHasher {
+
+    private final int rounds;
+
+    public BCryptPasswordHasher(int rounds) {
+        this.rounds = rounds;
+    }
+
+    @Override
+    public String getName() {
+        return "bcrypt";
+    }
+
+    @Override
+    public String hash(String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(rounds));
+    }
+
+    @Override
+    public boolean verify(String password, String encodedHash) {
+        return BCrypt.checkpw(password, encodedHash);
+    }
+
+    @Override
+    public boolean handles(String encodedHash) {
+        return encodedHash != null && encodedHash.startsWith("$2") && encodedHash.length() > 7;
+    }
+
+    @Override
+    public boolean needsRehash(String encodedHash) {
+        try {
+            return Integer.parseInt(encodedHash.substring(4, 6)) != rounds;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package lk.esports.betting.security;
+
+/**
+ * One password hashing algorithm and its cost. Encoded hashes carry their own
+ * algorithm and cost, so a hasher can tell whether a stored hash is one of its own
+ * and whether it was made at a lower cost than the current setting.
+ */
+public interface PasswordHasher {
+
+    /**
+     * Short name of the algorithm, as used in esports.auth.hashAlgorithm
+     */
+    String getName();
+
+    String hash(String password);
+
+    /**
+     * Check a password against one of this hasher's encoded hashes
+     */
+    boolean verify(String password, String encodedHash);
+
+    /**
+     * Whether the encoded hash was produced by this algorithm
+     */
+    boolean handles(String encodedHash);
+
+    /**
+     * Whether one of this hasher's encoded hashes was made with a different cost than the current one
+     */
+    boolean needsRehash(String encodedHash);
+}
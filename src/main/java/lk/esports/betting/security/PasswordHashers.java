@@ -0,0 +1,68 @@
+package lk.esports.betting.security;
+
+import java.util.List;
+
+/**
+ * The configured password hashing algorithms.
+ *
+ * New hashes use esports.auth.hashAlgorithm (bcrypt or pbkdf2) at the cost set by
+ * esports.auth.bcryptRounds or esports.auth.pbkdf2Iterations. Any supported algorithm
+ * verifies, whatever the current setting, so the algorithm and cost can be changed
+ * without a password reset: a hash made with another algorithm or cost reports
+ * needsRehash and is upgraded on the user's next successful login.
+ */
+public final class PasswordHashers {
+
+    private static final int BCRYPT_ROUNDS = Integer.getInteger("esports.auth.bcryptRounds", 10);
+    private static final int PBKDF2_ITERATIONS = Integer.getInteger("esports.auth.pbkdf2Iterations", 310_000);
+
+    private static final List<PasswordHasher> HASHERS = List.of(
+            new BCryptPasswordHasher(BCRYPT_ROUNDS),
+            new Pbkdf2PasswordHasher(PBKDF2_ITERATIONS));
+
+    private static final PasswordHasher CURRENT = byName(System.getProperty("esports.auth.hashAlgorithm", "bcrypt"));
+
+    private PasswordHashers() {
+    }
+
+    public static PasswordHasher current() {
+        return CURRENT;
+    }
+
+    public static String hash(String password) {
+        return CURRENT.hash(password);
+    }
+
+    /**
+     * Verify with whichever algorithm produced the hash; false for an unknown format
+     */
+    public static boolean verify(String password, String encodedHash) {
+        PasswordHasher hasher = forHash(encodedHash);
+        return hasher != null && hasher.verify(password, encodedHash);
+    }
+
+    /**
+     * Whether a stored hash should be replaced by one from the current algorithm and cost
+     */
+    public static boolean needsRehash(String encodedHash) {
+        return !CURRENT.handles(encodedHash) || CURRENT.needsRehash(encodedHash);
+    }
+
+    private static PasswordHasher forHash(String encodedHash) {
+        for (PasswordHasher hasher : HASHERS) {
+            if (hasher.handles(encodedHash)) {
+                return hasher;
+            }
+        }
+        return null;
+    }
+
+    private static PasswordHasher byName(String name) {
+        for (PasswordHasher hasher : HASHERS) {
+            if (hasher.getName().equalsIgnoreCase(name)) {
+                return hasher;
+            }
+        }
+        throw new IllegalArgumentException("Unknown password hash algorithm: " + name);
+    }
+}
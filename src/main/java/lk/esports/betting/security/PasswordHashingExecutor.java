@@ -0,0 +1,125 @@
+package lk.esports.betting.security;
+
+import lk.esports.betting.utils.LatencyHistogram;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Runs BCrypt work (login verification, registration hashing) off the request threads.
+ *
+ * A fixed pool of THREADS workers, at most half the cores by default, takes tasks from
+ * a queue of QUEUE_SIZE. When the queue is full a submission fails at once with
+ * RejectedExecutionException, so a login burst is refused instead of holding request
+ * threads or CPU that bet placement needs.
+ */
+public class PasswordHashingExecutor {
+
+    private static final Logger logger = Logger.getLogger(PasswordHashingExecutor.class.getName());
+
+    private static final int THREADS = Integer.getInteger("esports.auth.hashThreads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int QUEUE_SIZE = Integer.getInteger("esports.auth.hashQueueSize", 64);
+
+    private static final PasswordHashingExecutor INSTANCE = new PasswordHashingExecutor();
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram taskLatency = new LatencyHistogram();
+    private final LatencyHistogram hashLatency = new LatencyHistogram();
+
+    private PasswordHashingExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        MetricsRegistry.register("passwordHashing", this::snapshot);
+    }
+
+    public static PasswordHashingExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Run a task on the hashing pool. Throws RejectedExecutionException when the queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queued = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long started = System.nanoTime();
+                queueWait.record(started - queued);
+                try {
+                    result.complete(task.call());
+                } catch (Throwable t) {
+                    failed.increment();
+                    result.completeExceptionally(t);
+                } finally {
+                    taskLatency.record(System.nanoTime() - started);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warning("Password hashing queue is full (" + QUEUE_SIZE + "), rejecting request");
+            throw e;
+        }
+        submitted.increment();
+        return result;
+    }
+
+    /**
+     * Record the time of one BCrypt hash or verification, wherever it ran
+     */
+    public void recordHash(long nanos) {
+        hashLatency.record(nanos);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("threads", THREADS);
+        snapshot.put("activeThreads", executor.getActiveCount());
+        snapshot.put("queueDepth", executor.getQueue().size());
+        snapshot.put("queueCapacity", QUEUE_SIZE);
+        snapshot.put("submitted", submitted.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("failed", failed.sum());
+        snapshot.put("queueWait", queueWait.snapshot());
+        snapshot.put("taskLatency", taskLatency.snapshot());
+        snapshot.put("hashLatency", hashLatency.snapshot());
+        return snapshot;
+    }
+}
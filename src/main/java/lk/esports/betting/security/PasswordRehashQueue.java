@@ -0,0 +1,206 @@
+package lk.esports.betting.security;
+
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Upgrades password hashes made with an old algorithm or cost after a successful login.
+ *
+ * The new hash is computed on the hashing pool, never on the login itself, and is
+ * written later together with other upgrades in one JDBC batch. Each write only
+ * applies if the stored hash is still the one that was verified, so a password
+ * changed in the meantime is never overwritten. Upgrades that cannot be queued are
+ * dropped; the user is simply upgraded on a later login.
+ */
+public class PasswordRehashQueue {
+
+    private static final Logger logger = Logger.getLogger(PasswordRehashQueue.class.getName());
+
+    private static final long FLUSH_MILLIS = Long.getLong("esports.auth.rehashFlushMillis", 1000L);
+    private static final int MAX_BATCH = Integer.getInteger("esports.auth.rehashBatch", 200);
+    private static final int CAPACITY = Integer.getInteger("esports.auth.rehashCapacity", 10_000);
+
+    private static final String UPDATE_PASSWORD_SQL =
+            "UPDATE users SET password = ?, updated_at = ? WHERE id = ? AND password = ?";
+
+    private static final PasswordRehashQueue INSTANCE = new PasswordRehashQueue();
+
+    private final Map<Long, Rehash> pending = new ConcurrentHashMap<>();
+    private final Set<Long> hashing = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService writer;
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder upgraded = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private PasswordRehashQueue() {
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "password-rehash");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flush, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        MetricsRegistry.register("passwordRehash", this::snapshot);
+    }
+
+    public static PasswordRehashQueue getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queue an upgrade of a hash that was just verified against the given password
+     */
+    public void schedule(Long userId, String verifiedHash, String password) {
+        // Logins and registrations waiting for the pool come first
+        if (userId == null || pending.size() >= CAPACITY
+                || PasswordHashingExecutor.getInstance().getQueueDepth() > 0 || !hashing.add(userId)) {
+            dropped.increment();
+            return;
+        }
+
+        try {
+            PasswordHashingExecutor.getInstance().submit(() -> {
+                long started = System.nanoTime();
+                String upgradedHash = PasswordHashers.hash(password);
+                PasswordHashingExecutor.getInstance().recordHash(System.nanoTime() - started);
+                pending.put(userId, new Rehash(userId, verifiedHash, upgradedHash));
+                return null;
+            }).whenComplete((ignored, error) -> {
+                hashing.remove(userId);
+                if (error != null) {
+                    dropped.increment();
+                    logger.log(Level.WARNING, "Error rehashing password for user: " + userId, error);
+                }
+            });
+            scheduled.increment();
+        } catch (RejectedExecutionException e) {
+            hashing.remove(userId);
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Write the queued upgrades, MAX_BATCH per transaction
+     */
+    public synchronized void flush() {
+        while (!pending.isEmpty()) {
+            List<Rehash> batch = new ArrayList<>(Math.min(pending.size(), MAX_BATCH));
+            Iterator<Rehash> iterator = pending.values().iterator();
+            while (iterator.hasNext() && batch.size() < MAX_BATCH) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            if (!write(batch)) {
+                return;
+            }
+        }
+    }
+
+    private boolean write(List<Rehash> batch) {
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            entityManager.getTransaction().begin();
+
+            int[] counts = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                try (PreparedStatement update = connection.prepareStatement(UPDATE_PASSWORD_SQL)) {
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    for (Rehash rehash : batch) {
+                        update.setString(1, rehash.upgradedHash);
+                        update.setTimestamp(2, now);
+                        update.setLong(3, rehash.userId);
+                        update.setString(4, rehash.verifiedHash);
+                        update.addBatch();
+                    }
+                    return update.executeBatch();
+                }
+            });
+
+            entityManager.getTransaction().commit();
+            batches.increment();
+            for (int count : counts) {
+                if (count == 0) {
+                    stale.increment();
+                } else {
+                    upgraded.increment();
+                }
+            }
+            return true;
+
+        } catch (Exception e) {
+            if (entityManager != null && entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            dropped.add(batch.size());
+            logger.log(Level.SEVERE, "Error writing " + batch.size() + " password upgrades", e);
+            return false;
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    /**
+     * Write what is queued and stop the writer
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("algorithm", PasswordHashers.current().getName());
+        snapshot.put("pending", pending.size());
+        snapshot.put("hashing", hashing.size());
+        snapshot.put("scheduled", scheduled.sum());
+        snapshot.put("upgraded", upgraded.sum());
+        snapshot.put("stale", stale.sum());
+        snapshot.put("dropped", dropped.sum());
+        snapshot.put("batches", batches.sum());
+        return snapshot;
+    }
+
+    private static final class Rehash {
+        private final Long userId;
+        private final String verifiedHash;
+        private final String upgradedHash;
+
+        private Rehash(Long userId, String verifiedHash, String upgradedHash) {
+            this.userId = userId;
+            this.verifiedHash = verifiedHash;
+            this.upgradedHash = upgradedHash;
+        }
+    }
+}
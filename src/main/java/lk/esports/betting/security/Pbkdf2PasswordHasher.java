@@ -0,0 +1,81 @@
+package lk.esports.betting.security;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PBKDF2 with HMAC-SHA256 from the JDK, with a configurable iteration count.
+ * Hashes are encoded as $pbkdf2-sha256$i=ITERATIONS$SALT$HASH with unpadded Base64.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    private static final String PREFIX = "$pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int iterations;
+
+    public Pbkdf2PasswordHasher(int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String getName() {
+        return "pbkdf2";
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] key = derive(password, salt, iterations);
+
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "i=" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(key);
+    }
+
+    @Override
+    public boolean verify(String password, String encodedHash) {
+        String[] parts = encodedHash.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3 || !parts[0].startsWith("i=")) {
+            return false;
+        }
+        int storedIterations = Integer.parseInt(parts[0].substring(2));
+        byte[] salt = Base64.getDecoder().decode(parts[1]);
+        byte[] expected = Base64.getDecoder().decode(parts[2]);
+        return MessageDigest.isEqual(expected, derive(password, salt, storedIterations));
+    }
+
+    @Override
+    public boolean handles(String encodedHash) {
+        return encodedHash != null && encodedHash.startsWith(PREFIX);
+    }
+
+    @Override
+    public boolean needsRehash(String encodedHash) {
+        try {
+            String cost = encodedHash.substring(PREFIX.length(), encodedHash.indexOf('$', PREFIX.length()));
+            return Integer.parseInt(cost.substring(2)) != iterations;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
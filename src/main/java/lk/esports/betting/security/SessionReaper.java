@@ -0,0 +1,205 @@
+package lk.esports.betting.security;
+
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.LatencyHistogram;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Deletes expired rows from user_sessions and counts each user's active sessions.
+ *
+ * Every INTERVAL_MILLIS expired sessions are deleted BATCH_SIZE rows at a time, each
+ * batch in its own transaction so no delete holds its locks for long, and at most
+ * MAX_BATCHES per run. Revoked sessions are kept until they expire, because the token
+ * deny-list is loaded from them.
+ *
+ * The active session counts are rebuilt from the table on every run and adjusted in
+ * between as this node issues and revokes tokens.
+ */
+public class SessionReaper {
+
+    private static final Logger logger = Logger.getLogger(SessionReaper.class.getName());
+
+    private static final long INTERVAL_MILLIS = Long.getLong("esports.sessions.reapIntervalMillis", 10 * 60 * 1000L);
+    private static final int BATCH_SIZE = Integer.getInteger("esports.sessions.reapBatch", 1000);
+    private static final int MAX_BATCHES = Integer.getInteger("esports.sessions.reapMaxBatches", 100);
+
+    private static final String DELETE_EXPIRED_SQL =
+            "DELETE FROM user_sessions WHERE expires_at < ?1 LIMIT ?2";
+
+    private static final SessionReaper INSTANCE = new SessionReaper();
+
+    private final ScheduledExecutorService scheduler;
+    private volatile Map<Long, Integer> activeSessions = new ConcurrentHashMap<>();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private volatile long lastRunDeleted = 0;
+    private volatile long lastRunMillis = 0;
+    private volatile boolean started = false;
+
+    private SessionReaper() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MetricsRegistry.register("sessionReaper", this::snapshot);
+    }
+
+    public static SessionReaper getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start() {
+        if (!started) {
+            scheduler.scheduleWithFixedDelay(this::reap, 0, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            started = true;
+        }
+    }
+
+    /**
+     * Delete expired sessions and rebuild the active session counts
+     */
+    public void reap() {
+        runs.increment();
+        long runStarted = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        long runDeleted = 0;
+
+        try {
+            for (int batch = 0; batch < MAX_BATCHES; batch++) {
+                int count = deleteExpiredBatch(now);
+                runDeleted += count;
+                if (count < BATCH_SIZE) {
+                    break;
+                }
+            }
+            if (runDeleted > 0) {
+                logger.info("Deleted " + runDeleted + " expired sessions");
+            }
+            rebuildActiveSessions(now);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error reaping expired sessions", e);
+        } finally {
+            lastRunDeleted = runDeleted;
+            lastRunMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStarted);
+        }
+    }
+
+    private int deleteExpiredBatch(LocalDateTime now) {
+        long batchStarted = System.nanoTime();
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            entityManager.getTransaction().begin();
+
+            int count = entityManager.createNativeQuery(DELETE_EXPIRED_SQL)
+                    .setParameter(1, now)
+                    .setParameter(2, BATCH_SIZE)
+                    .executeUpdate();
+
+            entityManager.getTransaction().commit();
+            batches.increment();
+            deleted.add(count);
+            return count;
+
+        } catch (Exception e) {
+            if (entityManager != null && entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            throw new RuntimeException("Failed to delete expired sessions", e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+            batchLatency.record(System.nanoTime() - batchStarted);
+        }
+    }
+
+    private void rebuildActiveSessions(LocalDateTime now) {
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            List<Object[]> rows = entityManager.createQuery(
+                    "SELECT s.user.id, COUNT(s) FROM UserSession s " +
+                    "WHERE s.isActive = true AND s.expiresAt > :now GROUP BY s.user.id", Object[].class)
+                    .setParameter("now", now)
+                    .getResultList();
+
+            Map<Long, Integer> counts = new ConcurrentHashMap<>(Math.max(16, rows.size() * 2));
+            for (Object[] row : rows) {
+                counts.put((Long) row[0], ((Long) row[1]).intValue());
+            }
+            activeSessions = counts;
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    public void sessionOpened(Long userId) {
+        activeSessions.merge(userId, 1, Integer::sum);
+    }
+
+    public void sessionClosed(Long userId) {
+        activeSessions.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public void allSessionsClosed(Long userId) {
+        activeSessions.remove(userId);
+    }
+
+    public int getActiveSessionCount(Long userId) {
+        return activeSessions.getOrDefault(userId, 0);
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<Long, Integer> counts = new HashMap<>(activeSessions);
+        long totalActive = 0;
+        for (int count : counts.values()) {
+            totalActive += count;
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("activeSessions", totalActive);
+        snapshot.put("usersWithSessions", counts.size());
+        snapshot.put("runs", runs.sum());
+        snapshot.put("batches", batches.sum());
+        snapshot.put("deleted", deleted.sum());
+        snapshot.put("lastRunDeleted", lastRunDeleted);
+        snapshot.put("lastRunMillis", lastRunMillis);
+        snapshot.put("lastRunDeletedPerSecond",
+                lastRunMillis > 0 ? lastRunDeleted * 1000 / lastRunMillis : lastRunDeleted);
+        snapshot.put("batchLatency", batchLatency.snapshot());
+        return snapshot;
+    }
+}
@@ -0,0 +1,453 @@
+package lk.esports.betting.security;
+
+import lk.esports.betting.entity.User;
+import lk.esports.betting.entity.UserSession;
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Signed session tokens, enabled with esports.auth.tokens.enabled.
+ *
+ * A token is USER_ID.EXPIRES.TOKEN_ID.KIND.SIGNATURE, where EXPIRES is in epoch seconds,
+ * KIND is s (browser session) or r (remember me) and SIGNATURE is an HMAC-SHA256 of the
+ * rest under esports.auth.tokenSecret. Every node with the same secret verifies a token
+ * without a database or session lookup. A session token expires after
+ * esports.auth.tokenTtlMinutes of inactivity: once half of that has passed, refresh
+ * extends it. A remember-me token lasts esports.auth.rememberTtlMinutes from login.
+ *
+ * Each issued token has a user_sessions row keyed by its token id. Revoking a token
+ * marks the row inactive and stamps revoked_at with the database clock. Every
+ * SYNC_MILLIS each node loads the rows revoked since its last sync, less an OVERLAP_MILLIS
+ * margin for transactions that committed late, into an in-memory deny-list, so a
+ * revocation reaches other nodes within one sync interval and takes effect at once on
+ * the node that made it.
+ */
+public class SessionTokenService {
+
+    private static final Logger logger = Logger.getLogger(SessionTokenService.class.getName());
+
+    private static final boolean ENABLED = Boolean.getBoolean("esports.auth.tokens.enabled");
+    private static final long TTL_MINUTES = Long.getLong("esports.auth.tokenTtlMinutes", 30L);
+    private static final long REMEMBER_TTL_MINUTES = Long.getLong("esports.auth.rememberTtlMinutes", 7 * 24 * 60L);
+    private static final long SYNC_MILLIS = Long.getLong("esports.auth.denyListSyncMillis", 5000L);
+    private static final long OVERLAP_MILLIS = Long.getLong("esports.auth.denyListOverlapMillis", 60_000L);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int TOKEN_ID_BYTES = 16;
+    private static final String SESSION_KIND = "s";
+    private static final String REMEMBER_KIND = "r";
+
+    private static final SessionTokenService INSTANCE = new SessionTokenService();
+
+    private final SecretKeySpec secret;
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService syncer;
+    // Revoked token id -> its expiry in epoch seconds
+    private final Map<String, Long> denyList = new ConcurrentHashMap<>();
+    private volatile LocalDateTime syncedThrough = null;
+    private volatile boolean started = false;
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder refreshed = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder revoked = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder syncedRows = new LongAdder();
+
+    /**
+     * The verified contents of a token
+     */
+    public static final class Claims {
+        private final Long userId;
+        private final long expiresAt;
+        private final String tokenId;
+        private final boolean rememberMe;
+
+        Claims(Long userId, long expiresAt, String tokenId, boolean rememberMe) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+            this.tokenId = tokenId;
+            this.rememberMe = rememberMe;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public String getTokenId() {
+            return tokenId;
+        }
+
+        public boolean isRememberMe() {
+            return rememberMe;
+        }
+    }
+
+    private SessionTokenService() {
+        secret = new SecretKeySpec(loadSecret(), HMAC_ALGORITHM);
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-deny-list");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MetricsRegistry.register("sessionTokens", this::snapshot);
+    }
+
+    public static SessionTokenService getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Lifetime of a remember-me token, which is also its cookie's max age
+     */
+    public static long rememberTtlSeconds() {
+        return REMEMBER_TTL_MINUTES * 60;
+    }
+
+    public synchronized void start() {
+        if (!started) {
+            syncer.scheduleWithFixedDelay(this::syncDenyList, 0, SYNC_MILLIS, TimeUnit.MILLISECONDS);
+            started = true;
+        }
+    }
+
+    /**
+     * Create a session row for the user and return its signed token
+     */
+    public String issue(Long userId, boolean rememberMe, String ipAddress, String userAgent) {
+        long expiresAt = Instant.now().getEpochSecond() + (rememberMe ? rememberTtlSeconds() : TTL_MINUTES * 60);
+
+        byte[] id = new byte[TOKEN_ID_BYTES];
+        random.nextBytes(id);
+        String tokenId = Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            entityManager.getTransaction().begin();
+
+            UserSession session = new UserSession(entityManager.getReference(User.class, userId), tokenId,
+                    toLocalDateTime(expiresAt), ipAddress, userAgent);
+            entityManager.persist(session);
+
+            entityManager.getTransaction().commit();
+        } catch (Exception e) {
+            if (entityManager != null && entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            logger.log(Level.SEVERE, "Error creating session for user: " + userId, e);
+            throw new RuntimeException("Failed to create session", e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+
+        issued.increment();
+        SessionReaper.getInstance().sessionOpened(userId);
+        return sign(new Claims(userId, expiresAt, tokenId, rememberMe));
+    }
+
+    /**
+     * A new token for the same session with a later expiry, once half of a session
+     * token's idle lifetime has passed; null when no refresh is due or the session is gone
+     */
+    public String refresh(Claims claims) {
+        long now = Instant.now().getEpochSecond();
+        if (claims.rememberMe || claims.expiresAt - now > TTL_MINUTES * 60 / 2) {
+            return null;
+        }
+
+        long expiresAt = now + TTL_MINUTES * 60;
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            entityManager.getTransaction().begin();
+            int updated = entityManager.createQuery(
+                    "UPDATE UserSession s SET s.expiresAt = :expiresAt " +
+                    "WHERE s.sessionToken = :tokenId AND s.isActive = true")
+                    .setParameter("expiresAt", toLocalDateTime(expiresAt))
+                    .setParameter("tokenId", claims.tokenId)
+                    .executeUpdate();
+            entityManager.getTransaction().commit();
+            if (updated == 0) {
+                return null;
+            }
+        } catch (Exception e) {
+            if (entityManager != null && entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            // The current token stays valid until it expires; the next request tries again
+            logger.log(Level.WARNING, "Error refreshing session of user: " + claims.userId, e);
+            return null;
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+
+        refreshed.increment();
+        return sign(new Claims(claims.userId, expiresAt, claims.tokenId, false));
+    }
+
+    /**
+     * The claims of a well-signed, unexpired and unrevoked token, or null
+     */
+    public Claims verify(String token) {
+        Claims claims = parse(token);
+        if (claims == null || claims.expiresAt <= Instant.now().getEpochSecond()) {
+            rejected.increment();
+            return null;
+        }
+        if (denyList.containsKey(claims.tokenId)) {
+            denied.increment();
+            return null;
+        }
+        accepted.increment();
+        return claims;
+    }
+
+    /**
+     * Revoke one token, e.g. on logout. Unsigned or malformed tokens are ignored.
+     */
+    public void revoke(String token) {
+        Claims claims = parse(token);
+        if (claims == null) {
+            return;
+        }
+        denyList.put(claims.tokenId, claims.expiresAt);
+        deactivate("UPDATE UserSession s SET s.isActive = false, s.revokedAt = CURRENT_TIMESTAMP " +
+                "WHERE s.sessionToken = :value AND s.isActive = true", "value", claims.tokenId);
+        revoked.increment();
+        SessionReaper.getInstance().sessionClosed(claims.userId);
+    }
+
+    /**
+     * Revoke every token of a user, e.g. on deactivation or a password change
+     */
+    public void revokeAll(Long userId) {
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            List<Object[]> sessions = entityManager.createQuery(
+                    "SELECT s.sessionToken, s.expiresAt FROM UserSession s " +
+                    "WHERE s.user.id = :userId AND s.isActive = true AND s.expiresAt > :now", Object[].class)
+                    .setParameter("userId", userId)
+                    .setParameter("now", LocalDateTime.now())
+                    .getResultList();
+            for (Object[] session : sessions) {
+                denyList.put((String) session[0], toEpochSecond((LocalDateTime) session[1]));
+            }
+            revoked.add(sessions.size());
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error finding sessions of user: " + userId, e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+
+        deactivate("UPDATE UserSession s SET s.isActive = false, s.revokedAt = CURRENT_TIMESTAMP " +
+                "WHERE s.user.id = :value AND s.isActive = true", "value", userId);
+        SessionReaper.getInstance().allSessionsClosed(userId);
+    }
+
+    private void deactivate(String update, String parameter, Object value) {
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            entityManager.getTransaction().begin();
+            entityManager.createQuery(update).setParameter(parameter, value).executeUpdate();
+            entityManager.getTransaction().commit();
+        } catch (Exception e) {
+            if (entityManager != null && entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            logger.log(Level.SEVERE, "Error revoking sessions", e);
+            throw new RuntimeException("Failed to revoke session", e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    /**
+     * Add the sessions revoked since the last sync to the deny-list and drop expired
+     * ids from it. The first sync loads every revoked, unexpired session.
+     */
+    public void syncDenyList() {
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            LocalDateTime since = syncedThrough;
+            List<Object[]> sessions;
+            if (since == null) {
+                sessions = entityManager.createQuery(
+                        "SELECT s.sessionToken, s.expiresAt, s.revokedAt FROM UserSession s " +
+                        "WHERE s.isActive = false AND s.expiresAt > :now", Object[].class)
+                        .setParameter("now", LocalDateTime.now())
+                        .getResultList();
+            } else {
+                sessions = entityManager.createQuery(
+                        "SELECT s.sessionToken, s.expiresAt, s.revokedAt FROM UserSession s " +
+                        "WHERE s.revokedAt > :since", Object[].class)
+                        .setParameter("since", since.minusNanos(OVERLAP_MILLIS * 1_000_000))
+                        .getResultList();
+            }
+
+            applyRevocations(sessions);
+            syncs.increment();
+            syncedRows.add(sessions.size());
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error syncing session deny-list", e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    /**
+     * Deny the given token id, expiry and revoked_at rows, move the sync point to the
+     * latest revocation among them and drop expired ids from the deny-list
+     */
+    void applyRevocations(List<Object[]> sessions) {
+        LocalDateTime latest = syncedThrough;
+        for (Object[] session : sessions) {
+            denyList.put((String) session[0], toEpochSecond((LocalDateTime) session[1]));
+            LocalDateTime revokedAt = (LocalDateTime) session[2];
+            if (revokedAt != null && (latest == null || revokedAt.isAfter(latest))) {
+                latest = revokedAt;
+            }
+        }
+        // Until something is revoked, keep the first-sync query; revoked_at is database time
+        syncedThrough = latest;
+
+        long now = Instant.now().getEpochSecond();
+        denyList.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    private Claims parse(String token) {
+        if (token == null) {
+            return null;
+        }
+        // A negative limit keeps empty fields, so extra dots change the count
+        String[] parts = token.split("\\.", -1);
+        if (parts.length != 5) {
+            return null;
+        }
+        String payload = parts[0] + "." + parts[1] + "." + parts[2] + "." + parts[3];
+        byte[] expected = signature(payload).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, parts[4].getBytes(StandardCharsets.US_ASCII))) {
+            return null;
+        }
+        if (!SESSION_KIND.equals(parts[3]) && !REMEMBER_KIND.equals(parts[3])) {
+            return null;
+        }
+        try {
+            return new Claims(Long.valueOf(parts[0]), Long.parseLong(parts[1]), parts[2], REMEMBER_KIND.equals(parts[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    String sign(Claims claims) {
+        String payload = claims.userId + "." + claims.expiresAt + "." + claims.tokenId + "."
+                + (claims.rememberMe ? REMEMBER_KIND : SESSION_KIND);
+        return payload + "." + signature(payload);
+    }
+
+    String signature(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secret);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static byte[] loadSecret() {
+        String configured = System.getProperty("esports.auth.tokenSecret");
+        if (configured != null && configured.length() >= 32) {
+            return configured.getBytes(StandardCharsets.UTF_8);
+        }
+        if (ENABLED) {
+            logger.warning("esports.auth.tokenSecret is not set (32+ characters); " +
+                    "session tokens are signed with a random key and only valid on this node until restart");
+        }
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    public void shutdown() {
+        syncer.shutdown();
+        try {
+            if (!syncer.awaitTermination(5, TimeUnit.SECONDS)) {
+                syncer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            syncer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", ENABLED);
+        snapshot.put("denyListSize", denyList.size());
+        snapshot.put("syncedThrough", syncedThrough != null ? syncedThrough.toString() : null);
+        snapshot.put("issued", issued.sum());
+        snapshot.put("refreshed", refreshed.sum());
+        snapshot.put("accepted", accepted.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("denied", denied.sum());
+        snapshot.put("revoked", revoked.sum());
+        snapshot.put("syncs", syncs.sum());
+        snapshot.put("syncedRows", syncedRows.sum());
+        return snapshot;
+    }
+}
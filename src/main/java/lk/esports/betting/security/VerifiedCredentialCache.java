@@ -0,0 +1,177 @@
+package lk.esports.betting.security;
+
+import lk.esports.betting.utils.MetricsRegistry;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers recent successful password verifications so a repeat login within TTL_MILLIS
+ * skips the password hash and the lookup by email.
+ *
+ * Nothing reversible is kept: emails are stored as an HMAC, and a verification as an
+ * HMAC of the user id, the stored password hash and the password, under a random key
+ * that only lives in this process. A verification only matches while the stored hash
+ * is unchanged, so any password change defeats it even before invalidate is called.
+ * At most MAX_ENTRIES are kept; when full and nothing has expired, new ones are skipped.
+ */
+public class VerifiedCredentialCache {
+
+    private static final long TTL_MILLIS = Long.getLong("esports.auth.credentialCacheTtlMillis", 300_000L);
+    private static final int MAX_ENTRIES = Integer.getInteger("esports.auth.credentialCacheSize", 10_000);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final VerifiedCredentialCache INSTANCE = new VerifiedCredentialCache();
+
+    private final SecretKeySpec secret;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, String> keysByUser = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private VerifiedCredentialCache() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        secret = new SecretKeySpec(key, HMAC_ALGORITHM);
+        MetricsRegistry.register("credentialCache", this::snapshot);
+    }
+
+    public static VerifiedCredentialCache getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return TTL_MILLIS > 0 && MAX_ENTRIES > 0;
+    }
+
+    /**
+     * The id of the user recently verified with this email, or null
+     */
+    public Long findUserId(String email) {
+        Entry entry = entries.get(emailKey(email));
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return entry.userId;
+    }
+
+    /**
+     * Whether this password was recently verified against the user's current hash
+     */
+    public boolean isVerified(Long userId, String email, String storedHash, String password) {
+        Entry entry = entries.get(emailKey(email));
+        boolean verified = entry != null
+                && entry.userId.equals(userId)
+                && !entry.isExpired(System.currentTimeMillis())
+                && MessageDigest.isEqual(entry.credential, credential(userId, storedHash, password));
+        if (verified) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return verified;
+    }
+
+    /**
+     * Record a successful verification of the password against the stored hash
+     */
+    public void remember(Long userId, String email, String storedHash, String password) {
+        long now = System.currentTimeMillis();
+        if (entries.size() >= MAX_ENTRIES && purgeExpired(now) == 0) {
+            skipped.increment();
+            return;
+        }
+
+        String key = emailKey(email);
+        entries.put(key, new Entry(userId, credential(userId, storedHash, password), now + TTL_MILLIS));
+        String previousKey = keysByUser.put(userId, key);
+        if (previousKey != null && !previousKey.equals(key)) {
+            entries.remove(previousKey);
+        }
+        stored.increment();
+    }
+
+    /**
+     * Forget the user's verification, e.g. after a password change or deactivation
+     */
+    public void invalidate(Long userId) {
+        String key = keysByUser.remove(userId);
+        if (key != null) {
+            entries.remove(key);
+            invalidations.increment();
+        }
+    }
+
+    private int purgeExpired(long now) {
+        int purged = 0;
+        for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+            Entry entry = candidate.getValue();
+            if (entry.isExpired(now) && entries.remove(candidate.getKey(), entry)) {
+                keysByUser.remove(entry.userId, candidate.getKey());
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    private String emailKey(String email) {
+        return Base64.getEncoder().withoutPadding().encodeToString(hmac("email\0" + email));
+    }
+
+    private byte[] credential(Long userId, String storedHash, String password) {
+        return hmac(userId + "\0" + storedHash + "\0" + password);
+    }
+
+    private byte[] hmac(String value) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secret);
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", isEnabled());
+        snapshot.put("size", entries.size());
+        snapshot.put("capacity", MAX_ENTRIES);
+        snapshot.put("ttlMillis", TTL_MILLIS);
+        snapshot.put("hits", hits.sum());
+        snapshot.put("misses", misses.sum());
+        snapshot.put("stored", stored.sum());
+        snapshot.put("skipped", skipped.sum());
+        snapshot.put("invalidations", invalidations.sum());
+        return snapshot;
+    }
+
+    private static final class Entry {
+        private final Long userId;
+        private final byte[] credential;
+        private final long expiresAt;
+
+        private Entry(Long userId, byte[] credential, long expiresAt) {
+            this.userId = userId;
+            this.credential = credential;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -4,11 +4,15 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
 import jakarta.persistence.Query;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -20,11 +24,17 @@ public class DatabaseUtil {
 
     private static final Logger logger = Logger.getLogger(DatabaseUtil.class.getName());
 
-    // Database connection parameters
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/esports_betting?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC&autoReconnect=true&useUnicode=true&characterEncoding=UTF-8";
-    private static final String DB_USERNAME = "root";
-    private static final String DB_PASSWORD = "2009928";
-    private static final String DB_DRIVER = "com.mysql.cj.jdbc.Driver";
+    // Database connection parameters (overridable with -Desports.db.*, e.g. for the H2 benchmarks)
+    private static final String DB_URL = System.getProperty("esports.db.url",
+            "jdbc:mysql://localhost:3306/esports_betting?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC&autoReconnect=true&useUnicode=true&characterEncoding=UTF-8");
+    private static final String DB_USERNAME = System.getProperty("esports.db.user", "root");
+    private static final String DB_PASSWORD = System.getProperty("esports.db.password", "2009928");
+    private static final String DB_DRIVER = System.getProperty("esports.db.driver", "com.mysql.cj.jdbc.Driver");
+    private static final String DB_DIALECT = System.getProperty("esports.db.dialect", "org.hibernate.dialect.MySQLDialect");
+
+    // Opt-in second-level/query cache for reference data (Team, Tournament)
+    private static final boolean REFERENCE_CACHE_ENABLED = Boolean.getBoolean("esports.cache.enabled");
+    public static final String REFERENCE_QUERY_REGION = "referenceDataQueries";
 
     // EntityManagerFactory for JPA operations
     private static volatile EntityManagerFactory entityManagerFactory;
@@ -56,12 +66,23 @@ public class DatabaseUtil {
             properties.put("jakarta.persistence.jdbc.password", DB_PASSWORD);
 
             // Hibernate specific properties
-            properties.put("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+            properties.put("hibernate.dialect", DB_DIALECT);
             properties.put("hibernate.hbm2ddl.auto", "update");
             properties.put("hibernate.show_sql", "false"); // Changed to false for production
             properties.put("hibernate.format_sql", "false");
-            properties.put("hibernate.cache.use_second_level_cache", "false");
-            properties.put("hibernate.cache.use_query_cache", "false");
+            if (REFERENCE_CACHE_ENABLED) {
+                // Local JCache regions backed by Caffeine, configured in application.conf
+                properties.put("hibernate.cache.use_second_level_cache", "true");
+                properties.put("hibernate.cache.use_query_cache", "true");
+                properties.put("hibernate.cache.region.factory_class", "jcache");
+                properties.put("hibernate.javax.cache.provider",
+                        "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+                properties.put("hibernate.javax.cache.missing_cache_strategy", "create");
+                properties.put("hibernate.generate_statistics", "true");
+            } else {
+                properties.put("hibernate.cache.use_second_level_cache", "false");
+                properties.put("hibernate.cache.use_query_cache", "false");
+            }
 
             // Connection pool settings
             properties.put("hibernate.c3p0.min_size", "5");
@@ -79,7 +100,11 @@ public class DatabaseUtil {
             try {
                 entityManagerFactory = Persistence.createEntityManagerFactory("esportsPU", properties);
                 initializationFailed = false;
-                logger.info("EntityManagerFactory created successfully");
+                if (REFERENCE_CACHE_ENABLED) {
+                    MetricsRegistry.register("hibernateCache", DatabaseUtil::getCacheStatistics);
+                }
+                logger.info("EntityManagerFactory created successfully" +
+                        (REFERENCE_CACHE_ENABLED ? " with reference data caching" : ""));
             } catch (Exception e) {
                 logger.log(Level.SEVERE, "Failed to create EntityManagerFactory", e);
                 initializationFailed = true;
@@ -123,6 +148,66 @@ public class DatabaseUtil {
         }
     }
 
+    /**
+     * Whether the reference data cache is switched on (-Desports.cache.enabled=true)
+     */
+    public static boolean isReferenceCacheEnabled() {
+        return REFERENCE_CACHE_ENABLED;
+    }
+
+    /**
+     * Evict a reference entity and the cached reference queries after it changed
+     */
+    public static void evictReferenceData(Class<?> entityClass, Object id) {
+        if (!REFERENCE_CACHE_ENABLED || entityManagerFactory == null || !entityManagerFactory.isOpen()) {
+            return;
+        }
+        try {
+            if (id != null) {
+                entityManagerFactory.getCache().evict(entityClass, id);
+            }
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion(REFERENCE_QUERY_REGION);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error evicting cached " + entityClass.getSimpleName() + " " + id, e);
+        }
+    }
+
+    /**
+     * Hit/miss counters of the reference data regions
+     */
+    public static Map<String, Object> getCacheStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (entityManagerFactory == null || !entityManagerFactory.isOpen()) {
+            return stats;
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.put("secondLevelHits", statistics.getSecondLevelCacheHitCount());
+        stats.put("secondLevelMisses", statistics.getSecondLevelCacheMissCount());
+        stats.put("secondLevelPuts", statistics.getSecondLevelCachePutCount());
+        stats.put("queryHits", statistics.getQueryCacheHitCount());
+        stats.put("queryMisses", statistics.getQueryCacheMissCount());
+        stats.put("queryPuts", statistics.getQueryCachePutCount());
+
+        for (String region : new String[]{"team", "tournament"}) {
+            CacheRegionStatistics regionStats = statistics.getDomainDataRegionStatistics(region);
+            if (regionStats != null) {
+                stats.put(region, Map.of(
+                        "hits", regionStats.getHitCount(),
+                        "misses", regionStats.getMissCount(),
+                        "puts", regionStats.getPutCount()));
+            }
+        }
+        CacheRegionStatistics queryStats = statistics.getQueryRegionStatistics(REFERENCE_QUERY_REGION);
+        if (queryStats != null) {
+            stats.put(REFERENCE_QUERY_REGION, Map.of(
+                    "hits", queryStats.getHitCount(),
+                    "misses", queryStats.getMissCount(),
+                    "puts", queryStats.getPutCount()));
+        }
+        return stats;
+    }
+
     /**
      * Get a direct JDBC connection to the database
      */
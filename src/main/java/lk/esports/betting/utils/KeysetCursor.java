@@ -0,0 +1,59 @@
+package lk.esports.betting.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (timestamp DESC, id DESC), encoded as an
+ * opaque URL-safe token. The next page continues strictly after this row, so
+ * pages stay stable while new rows are inserted at the head.
+ */
+public final class KeysetCursor {
+
+    private final LocalDateTime timestamp;
+    private final Long id;
+
+    public KeysetCursor(LocalDateTime timestamp, Long id) {
+        if (timestamp == null || id == null) {
+            throw new IllegalArgumentException("Cursor needs both a timestamp and an id");
+        }
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    /**
+     * Decode a token produced by encode(). Returns null for a missing token (first page).
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    public Long getId() { return id; }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,88 @@
+package lk.esports.betting.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets.
+ * Recording is allocation free so it can sit on request hot paths.
+ */
+public class LatencyHistogram {
+
+    // Bucket i holds samples below 2^i microseconds; the last bucket is open ended
+    private static final int BUCKETS = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record a single sample expressed in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        long micros = nanos / 1000;
+        int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+        buckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Upper bound in milliseconds of the bucket containing the given percentile
+     */
+    public double getPercentileMillis(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0.0;
+        }
+
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return Math.min((1L << i) / 1000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public double getMeanMillis() {
+        long total = count.sum();
+        return total == 0 ? 0.0 : totalNanos.sum() / (total * 1_000_000.0);
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Snapshot suitable for JSON serialization
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", getCount());
+        snapshot.put("meanMs", round(getMeanMillis()));
+        snapshot.put("p50Ms", round(getPercentileMillis(50)));
+        snapshot.put("p95Ms", round(getPercentileMillis(95)));
+        snapshot.put("p99Ms", round(getPercentileMillis(99)));
+        snapshot.put("maxMs", round(getMaxMillis()));
+        return snapshot;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+}
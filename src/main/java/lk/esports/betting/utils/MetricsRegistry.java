@@ -0,0 +1,44 @@
+package lk.esports.betting.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Central registry of metric snapshots exposed through /api/metrics
+ */
+public class MetricsRegistry {
+
+    private static final Logger logger = Logger.getLogger(MetricsRegistry.class.getName());
+
+    private static final Map<String, Supplier<Map<String, Object>>> sources = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Register (or replace) a named metrics source
+     */
+    public static void register(String name, Supplier<Map<String, Object>> source) {
+        sources.put(name, source);
+    }
+
+    /**
+     * Snapshot of every registered source, ordered by name
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Supplier<Map<String, Object>>> entry : sources.entrySet()) {
+            try {
+                snapshot.put(entry.getKey(), entry.getValue().get());
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Error collecting metrics for " + entry.getKey(), e);
+                snapshot.put(entry.getKey(), Map.of("error", String.valueOf(e.getMessage())));
+            }
+        }
+        return snapshot;
+    }
+}
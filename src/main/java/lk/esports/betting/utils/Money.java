@@ -0,0 +1,54 @@
+package lk.esports.betting.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic on long cents.
+ *
+ * Amounts are stored at scale 2, so inside the odds, pool, risk and settlement code
+ * they are carried as cents and only turned into BigDecimal at the JPA/JDBC and JSON
+ * boundary. Rounding is HALF_UP, matching BigDecimal.setScale(2, HALF_UP) on the
+ * same values.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    public static final long CENTS_PER_UNIT = 100L;
+
+    private Money() {
+    }
+
+    /**
+     * Cents in an amount, rounded HALF_UP to scale 2
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Payout of a stake at the given odds, rounded HALF_UP to the cent
+     */
+    public static long multiplyByOdds(long cents, int oddsBasisPoints) {
+        return divideHalfUp(cents * oddsBasisPoints, Odds.ONE);
+    }
+
+    /**
+     * Integer division rounded HALF_UP (ties away from zero)
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += Long.signum(dividend) * Long.signum(divisor);
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,77 @@
+package lk.esports.betting.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point decimal odds in basis points (1.95 is 19500).
+ *
+ * Stored odds have scale 2, so they are always a multiple of 100 basis points;
+ * the extra two digits hold the 4-decimal intermediate ratios of the pricing
+ * formula exactly. All rounding is HALF_UP, as in the BigDecimal code it replaces.
+ */
+public final class Odds {
+
+    public static final int ONE = 10_000;
+
+    public static final int DEFAULT = 20_000;
+    public static final int MIN = 10_100;
+    // matches.team1_odds/team2_odds are DECIMAL(4,2)
+    public static final int MAX = 999_900;
+    public static final int PAYOUT_RATE = 9_500; // 5% house edge
+
+    public static final BigDecimal DEFAULT_DECIMAL = toBigDecimal(DEFAULT);
+
+    // Any raw ratio above this prices at MAX
+    private static final long RAW_CAP = 1_000L * ONE;
+
+    private Odds() {
+    }
+
+    /**
+     * Basis points of decimal odds, rounded HALF_UP to 4 places
+     */
+    public static int fromBigDecimal(BigDecimal odds) {
+        if (odds == null) {
+            return DEFAULT;
+        }
+        return odds.setScale(4, RoundingMode.HALF_UP).unscaledValue().intValueExact();
+    }
+
+    /**
+     * Odds at scale 2, as stored on matches and bets
+     */
+    public static BigDecimal toBigDecimal(int basisPoints) {
+        return BigDecimal.valueOf(Money.divideHalfUp(basisPoints, 100), 2);
+    }
+
+    /**
+     * Pool-based price of a team holding teamCents of a totalCents pool: the pool ratio
+     * at 4 places, times the payout rate, clamped to [MIN, MAX] and rounded to 2 places.
+     */
+    public static int fromPool(long totalCents, long teamCents) {
+        if (totalCents <= 0 || teamCents <= 0) {
+            return DEFAULT;
+        }
+        long raw = Math.min(Money.divideHalfUp(totalCents * ONE, teamCents), RAW_CAP);
+        // raw * rate is exact in units of 1e-8
+        long adjusted = raw * PAYOUT_RATE;
+        adjusted = Math.max(adjusted, (long) MIN * ONE);
+        adjusted = Math.min(adjusted, (long) MAX * ONE);
+        return (int) (Money.divideHalfUp(adjusted, (long) ONE * 100) * 100);
+    }
+
+    /**
+     * Implied probability of the odds in basis points, rounded HALF_UP
+     */
+    public static int impliedProbability(int basisPoints) {
+        return (int) Money.divideHalfUp((long) ONE * ONE, basisPoints);
+    }
+
+    /**
+     * Largest odds at scale 2 whose payout on stakeCents does not exceed maxPayoutCents (rounded down)
+     */
+    public static int maxForPayout(long stakeCents, long maxPayoutCents) {
+        return (int) (Math.floorDiv(maxPayoutCents * 100, stakeCents) * 100);
+    }
+}
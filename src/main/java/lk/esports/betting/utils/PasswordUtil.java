@@ -1,6 +1,6 @@
 package lk.esports.betting.utils;
 
-import org.mindrot.jbcrypt.BCrypt;
+import lk.esports.betting.security.PasswordHashers;
 
 import java.security.SecureRandom;
 import java.util.regex.Pattern;
@@ -23,11 +23,10 @@ public class PasswordUtil {
     // Constants
     private static final int MIN_PASSWORD_LENGTH = 8;
     private static final int MAX_PASSWORD_LENGTH = 100;
-    private static final int BCRYPT_ROUNDS = 12; // Higher is more secure but slower
     private static final SecureRandom SECURE_RANDOM = new SecureRandom();
 
     /**
-     * Hash a password using BCrypt
+     * Hash a password with the configured algorithm (see PasswordHashers)
      */
     public static String hashPassword(String password) {
         if (password == null || password.isEmpty()) {
@@ -35,7 +34,7 @@ public class PasswordUtil {
         }
 
         try {
-            return BCrypt.hashpw(password, BCrypt.gensalt(BCRYPT_ROUNDS));
+            return PasswordHashers.hash(password);
         } catch (Exception e) {
             logger.severe("Error hashing password: " + e.getMessage());
             throw new RuntimeException("Password hashing failed", e);
@@ -51,7 +50,7 @@ public class PasswordUtil {
         }
 
         try {
-            return BCrypt.checkpw(password, hashedPassword);
+            return PasswordHashers.verify(password, hashedPassword);
         } catch (Exception e) {
             logger.warning("Error verifying password: " + e.getMessage());
             return false;
@@ -271,23 +270,7 @@ public class PasswordUtil {
      * Check if a password needs to be rehashed (if using different hash parameters)
      */
     public static boolean needsRehash(String hashedPassword) {
-        // BCrypt hashes start with $2a$, $2b$, $2x$, or $2y$
-        // Check if the hash uses our current rounds setting
-        if (hashedPassword == null || hashedPassword.length() < 7) {
-            return true;
-        }
-
-        try {
-            String[] parts = hashedPassword.split("\\$");
-            if (parts.length >= 3) {
-                int rounds = Integer.parseInt(parts[2]);
-                return rounds < BCRYPT_ROUNDS;
-            }
-        } catch (NumberFormatException e) {
-            return true;
-        }
-
-        return true;
+        return hashedPassword == null || PasswordHashers.needsRehash(hashedPassword);
     }
 
     /**
@@ -0,0 +1,225 @@
+package lk.esports.betting.wallet;
+
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Wallet balance and account state per user, so balance polls and bet pre-checks do
+ * not load the User entity.
+ *
+ * An entry's version is the id of the user's latest wallet ledger entry, which
+ * increases with every committed debit or credit of that wallet, together with a
+ * generation drawn afresh whenever the entry is invalidated or loaded, so account
+ * changes that write no ledger entry (activation, deactivation, profile updates) also
+ * change it. Clients can send the version they hold and skip work when it has not
+ * changed.
+ *
+ * Wallet operations that hold the user's wallet lock publish the balance they read in
+ * their own transaction; other writers (bet placement, settlement) invalidate. An
+ * invalidated entry becomes a marker that a concurrent load cannot overwrite with a
+ * value read before the invalidation, and a publish never replaces a newer version.
+ */
+public class BalanceCache {
+
+    private static final Logger logger = Logger.getLogger(BalanceCache.class.getName());
+
+    private static final int MAX_ENTRIES = Integer.getInteger("esports.balanceCache.maxEntries", 100_000);
+
+    private static final String READ_SQL =
+            "SELECT u.wallet_balance, u.is_active, " +
+            "COALESCE((SELECT MAX(l.id) FROM wallet_ledger l WHERE l.user_id = u.id), 0) " +
+            "FROM users u WHERE u.id = ?1";
+
+    private static final BalanceCache INSTANCE = new BalanceCache();
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    // Seeded from the clock so generations do not repeat across restarts
+    private final AtomicLong generations = new AtomicLong(System.currentTimeMillis());
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder publishes = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private BalanceCache() {
+        MetricsRegistry.register("balanceCache", this::snapshot);
+    }
+
+    public static BalanceCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Current balance, account state and version of a user, or null if the user does not exist
+     */
+    public Entry get(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        Entry current = entries.get(userId);
+        if (current != null && current.isValid()) {
+            hits.increment();
+            return current;
+        }
+
+        // Hold a marker while loading so an invalidation during the load is not lost
+        Entry marker = current;
+        if (marker == null) {
+            marker = Entry.invalid(generations.incrementAndGet());
+            Entry raced = entries.putIfAbsent(userId, marker);
+            if (raced != null) {
+                if (raced.isValid()) {
+                    hits.increment();
+                    return raced;
+                }
+                marker = raced;
+            }
+        }
+
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            Entry read = read(entityManager, userId);
+            Entry loaded = read != null ? read.withGeneration(marker.generation) : null;
+            loads.increment();
+            if (loaded == null) {
+                entries.remove(userId, marker);
+            } else if (entries.replace(userId, marker, loaded)) {
+                evictIfFull();
+            }
+            // If the marker was invalidated meanwhile, the caller still gets what was read
+            return loaded;
+        } catch (Exception e) {
+            entries.remove(userId, marker);
+            logger.log(Level.SEVERE, "Error loading wallet balance for user: " + userId, e);
+            throw new RuntimeException("Failed to load wallet balance", e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    public BigDecimal getBalance(Long userId) {
+        Entry entry = get(userId);
+        return entry != null ? entry.getBalance() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Read a user's balance, state and version on the caller's connection. Called
+     * after a debit or credit, it returns that operation's own version.
+     */
+    public static Entry read(EntityManager entityManager, Long userId) {
+        List<?> rows = entityManager.createNativeQuery(READ_SQL)
+                .setParameter(1, userId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = (Object[]) rows.get(0);
+        boolean active = row[1] instanceof Boolean ? (Boolean) row[1] : ((Number) row[1]).intValue() != 0;
+        return new Entry((BigDecimal) row[0], active, ((Number) row[2]).longValue(), 0L);
+    }
+
+    /**
+     * Install a balance read inside a committed wallet operation. Only replaces an older
+     * cached version; an invalidated entry is invalidated again instead, since a load
+     * may be in progress that read the balance before this operation committed.
+     */
+    public void publish(Long userId, Entry entry) {
+        if (userId == null || entry == null) {
+            return;
+        }
+        publishes.increment();
+        entries.computeIfPresent(userId, (id, current) -> {
+            if (!current.isValid()) {
+                return Entry.invalid(generations.incrementAndGet());
+            }
+            return entry.ledgerId > current.ledgerId ? entry.withGeneration(current.generation) : current;
+        });
+    }
+
+    /**
+     * Mark a user's balance as changed by a writer that did not read it back
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        invalidations.increment();
+        entries.computeIfPresent(userId, (id, current) -> Entry.invalid(generations.incrementAndGet()));
+    }
+
+    public void invalidateAll(Iterable<Long> userIds) {
+        for (Long userId : userIds) {
+            invalidate(userId);
+        }
+    }
+
+    private void evictIfFull() {
+        Iterator<Long> iterator = entries.keySet().iterator();
+        while (entries.size() > MAX_ENTRIES && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("entries", entries.size());
+        snapshot.put("hits", hits.sum());
+        snapshot.put("loads", loads.sum());
+        snapshot.put("publishes", publishes.sum());
+        snapshot.put("invalidations", invalidations.sum());
+        return snapshot;
+    }
+
+    /**
+     * Balance, account state and version of one wallet; immutable
+     */
+    public static final class Entry {
+        private final BigDecimal balance;
+        private final boolean active;
+        private final long ledgerId;
+        private final long generation;
+
+        private Entry(BigDecimal balance, boolean active, long ledgerId, long generation) {
+            this.balance = balance;
+            this.active = active;
+            this.ledgerId = ledgerId;
+            this.generation = generation;
+        }
+
+        private static Entry invalid(long generation) {
+            return new Entry(null, false, -1L, generation);
+        }
+
+        private Entry withGeneration(long generation) {
+            return new Entry(balance, active, ledgerId, generation);
+        }
+
+        private boolean isValid() {
+            return balance != null;
+        }
+
+        public BigDecimal getBalance() { return balance; }
+        public boolean isActive() { return active; }
+        public String getVersion() { return ledgerId + "." + generation; }
+
+        public boolean canCover(BigDecimal amount) {
+            return active && balance.compareTo(amount) >= 0;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package lk.esports.betting.wallet;
+
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import com.google.gson.stream.JsonWriter;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams a user's full transaction statement as CSV or NDJSON.
+ *
+ * Rows come from a forward-only cursor on a StatelessSession (no persistence
+ * context, no entity instances) with MySQL row streaming enabled, and each row is
+ * written to the output as soon as it is read, so memory use does not depend on
+ * the length of the statement.
+ */
+public class TransactionExporter {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+
+        public static Format fromParameter(String value) {
+            return "ndjson".equalsIgnoreCase(value) || "json".equalsIgnoreCase(value) ? NDJSON : CSV;
+        }
+    }
+
+    private static final String EXPORT_QUERY =
+            "SELECT t.id, t.transactionType, t.amount, t.description, t.referenceId, t.status, t.createdAt " +
+            "FROM Transaction t WHERE t.user.id = :userId ORDER BY t.createdAt, t.id";
+
+    private static final String CSV_HEADER = "id,type,amount,description,reference_id,status,created_at\n";
+
+    // Tells MySQL Connector/J to stream rows one at a time instead of buffering the result
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private static final LongAdder exports = new LongAdder();
+    private static final LongAdder rowsExported = new LongAdder();
+    private static final LongAdder failedExports = new LongAdder();
+
+    static {
+        MetricsRegistry.register("transactionExport", TransactionExporter::snapshot);
+    }
+
+    private TransactionExporter() {
+    }
+
+    /**
+     * Write every transaction of the user, oldest first. Returns the number of rows written.
+     */
+    public static long export(Long userId, Format format, Writer out) throws IOException {
+        SessionFactory sessionFactory = DatabaseUtil.getEntityManagerFactory().unwrap(SessionFactory.class);
+        long rows = 0;
+        boolean completed = false;
+
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.getTransaction().begin();
+            try (ScrollableResults<Object[]> results = session.createQuery(EXPORT_QUERY, Object[].class)
+                    .setParameter("userId", userId)
+                    .setReadOnly(true)
+                    .setFetchSize(STREAMING_FETCH_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+
+                JsonWriter json = null;
+                if (format == Format.CSV) {
+                    out.write(CSV_HEADER);
+                } else {
+                    json = new JsonWriter(out);
+                    json.setLenient(true);
+                }
+
+                while (results.next()) {
+                    Object[] row = results.get();
+                    if (json != null) {
+                        writeJson(json, out, row);
+                    } else {
+                        writeCsv(out, row);
+                    }
+                    if (++rows % FLUSH_EVERY_ROWS == 0) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            } finally {
+                if (session.getTransaction().isActive()) {
+                    session.getTransaction().commit();
+                }
+            }
+            completed = true;
+            return rows;
+        } finally {
+            exports.increment();
+            rowsExported.add(rows);
+            if (!completed) {
+                failedExports.increment();
+            }
+        }
+    }
+
+    private static void writeCsv(Writer out, Object[] row) throws IOException {
+        out.write(String.valueOf(row[0]));
+        out.write(',');
+        out.write(String.valueOf(row[1]));
+        out.write(',');
+        out.write(((BigDecimal) row[2]).toPlainString());
+        out.write(',');
+        writeCsvText(out, (String) row[3]);
+        out.write(',');
+        if (row[4] != null) {
+            out.write(String.valueOf(row[4]));
+        }
+        out.write(',');
+        if (row[5] != null) {
+            out.write(String.valueOf(row[5]));
+        }
+        out.write(',');
+        if (row[6] != null) {
+            out.write(row[6].toString());
+        }
+        out.write('\n');
+    }
+
+    private static void writeCsvText(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static void writeJson(JsonWriter json, Writer out, Object[] row) throws IOException {
+        json.beginObject();
+        json.name("id").value((Long) row[0]);
+        json.name("type").value(String.valueOf(row[1]));
+        json.name("amount").value((BigDecimal) row[2]);
+        json.name("description").value((String) row[3]);
+        json.name("referenceId").value((Long) row[4]);
+        json.name("status").value(row[5] != null ? String.valueOf(row[5]) : null);
+        json.name("createdAt").value(row[6] != null ? row[6].toString() : null);
+        json.endObject();
+        out.write('\n');
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("exports", exports.sum());
+        snapshot.put("failedExports", failedExports.sum());
+        snapshot.put("rowsExported", rowsExported.sum());
+        return snapshot;
+    }
+}
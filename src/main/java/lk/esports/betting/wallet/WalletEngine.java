@@ -0,0 +1,216 @@
+package lk.esports.betting.wallet;
+
+import lk.esports.betting.entity.User;
+import lk.esports.betting.entity.WalletLedgerEntry;
+import lk.esports.betting.utils.MetricsRegistry;
+import lk.esports.betting.utils.Money;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wallet balance updates executed as single conditional UPDATE statements.
+ * The database row is the only source of truth, so callers never load or merge
+ * the User entity and concurrent debits cannot overdraw or lose updates.
+ * Every successful update also appends a wallet_ledger entry, so the balance can be
+ * rebuilt and audited from the ledger (see WalletReconciler).
+ * Every method must run inside the caller's active transaction.
+ */
+public class WalletEngine {
+
+    private static final String DEBIT_SQL =
+            "UPDATE users SET wallet_balance = wallet_balance - ?1, updated_at = ?2 " +
+            "WHERE id = ?3 AND is_active = true AND wallet_balance >= ?1";
+
+    private static final String CREDIT_SQL =
+            "UPDATE users SET wallet_balance = wallet_balance + ?1, updated_at = ?2 WHERE id = ?3";
+
+    private static final String CREDIT_BATCH_SQL =
+            "UPDATE users SET wallet_balance = wallet_balance + ?, updated_at = ? WHERE id = ?";
+
+    private static final String DEBIT_BATCH_SQL =
+            "UPDATE users SET wallet_balance = wallet_balance - ?, updated_at = ? " +
+            "WHERE id = ? AND is_active = true AND wallet_balance >= ?";
+
+    private static final String LEDGER_SQL =
+            "INSERT INTO wallet_ledger (user_id, amount, entry_type, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final LongAdder debits = new LongAdder();
+    private static final LongAdder rejectedDebits = new LongAdder();
+    private static final LongAdder credits = new LongAdder();
+
+    static {
+        MetricsRegistry.register("wallet", WalletEngine::snapshot);
+    }
+
+    private WalletEngine() {
+    }
+
+    /**
+     * Debit the wallet if the account is active and has enough funds.
+     * Returns false without changing anything otherwise.
+     */
+    public static boolean debit(EntityManager entityManager, Long userId, BigDecimal amount,
+                                WalletLedgerEntry.EntryType type) {
+        if (userId == null || amount == null || amount.signum() <= 0) {
+            rejectedDebits.increment();
+            return false;
+        }
+
+        boolean debited = execute(entityManager, DEBIT_SQL, userId, amount) == 1;
+        if (debited) {
+            appendLedger(entityManager, userId, amount.negate(), type);
+            debits.increment();
+        } else {
+            rejectedDebits.increment();
+        }
+        return debited;
+    }
+
+    /**
+     * Credit the wallet. Returns false if the user does not exist.
+     */
+    public static boolean credit(EntityManager entityManager, Long userId, BigDecimal amount,
+                                 WalletLedgerEntry.EntryType type) {
+        if (userId == null || amount == null || amount.signum() <= 0) {
+            return false;
+        }
+
+        boolean credited = execute(entityManager, CREDIT_SQL, userId, amount) == 1;
+        if (credited) {
+            appendLedger(entityManager, userId, amount, type);
+            credits.increment();
+        }
+        return credited;
+    }
+
+    /**
+     * Credit many wallets in one JDBC batch on the caller's connection.
+     * Amounts are in cents; callers pass users in ascending id order so concurrent
+     * batches always lock rows in the same order.
+     */
+    public static void creditBatch(Connection connection, Map<Long, Long> centsByUser,
+                                   WalletLedgerEntry.EntryType type) throws SQLException {
+        if (centsByUser.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(CREDIT_BATCH_SQL)) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (Map.Entry<Long, Long> entry : centsByUser.entrySet()) {
+                statement.setBigDecimal(1, Money.toBigDecimal(entry.getValue()));
+                statement.setTimestamp(2, now);
+                statement.setLong(3, entry.getKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        appendLedgerBatch(connection, centsByUser, type, 1);
+        credits.add(centsByUser.size());
+    }
+
+    /**
+     * Conditionally debit many wallets in one JDBC batch on the caller's connection.
+     * Amounts are in cents and users must be in ascending id order. Returns the users
+     * whose debit was refused (inactive account or insufficient funds); their balances
+     * are unchanged.
+     */
+    public static Set<Long> debitBatch(Connection connection, Map<Long, Long> centsByUser,
+                                       WalletLedgerEntry.EntryType type) throws SQLException {
+        Set<Long> refused = new HashSet<>();
+        if (centsByUser.isEmpty()) {
+            return refused;
+        }
+
+        List<Long> users = new ArrayList<>(centsByUser.keySet());
+        int[] counts;
+        try (PreparedStatement statement = connection.prepareStatement(DEBIT_BATCH_SQL)) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (Long userId : users) {
+                BigDecimal amount = Money.toBigDecimal(centsByUser.get(userId));
+                statement.setBigDecimal(1, amount);
+                statement.setTimestamp(2, now);
+                statement.setLong(3, userId);
+                statement.setBigDecimal(4, amount);
+                statement.addBatch();
+            }
+            counts = statement.executeBatch();
+        }
+
+        Map<Long, Long> debited = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                refused.add(users.get(i));
+            } else {
+                debited.put(users.get(i), centsByUser.get(users.get(i)));
+            }
+        }
+        appendLedgerBatch(connection, debited, type, -1);
+        debits.add(users.size() - refused.size());
+        rejectedDebits.add(refused.size());
+        return refused;
+    }
+
+    private static void appendLedger(EntityManager entityManager, Long userId, BigDecimal signedAmount,
+                                     WalletLedgerEntry.EntryType type) {
+        entityManager.createNativeQuery(LEDGER_SQL)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(WalletLedgerEntry.class)
+                .setParameter(1, userId)
+                .setParameter(2, signedAmount)
+                .setParameter(3, type.name())
+                .setParameter(4, LocalDateTime.now())
+                .executeUpdate();
+    }
+
+    private static void appendLedgerBatch(Connection connection, Map<Long, Long> centsByUser,
+                                          WalletLedgerEntry.EntryType type, int sign) throws SQLException {
+        if (centsByUser.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(LEDGER_SQL)) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (Map.Entry<Long, Long> entry : centsByUser.entrySet()) {
+                statement.setLong(1, entry.getKey());
+                statement.setBigDecimal(2, Money.toBigDecimal(sign * entry.getValue()));
+                statement.setString(3, type.name());
+                statement.setTimestamp(4, now);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static int execute(EntityManager entityManager, String sql, Long userId, BigDecimal amount) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(User.class)
+                .setParameter(1, amount)
+                .setParameter(2, LocalDateTime.now())
+                .setParameter(3, userId)
+                .executeUpdate();
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("debits", debits.sum());
+        snapshot.put("rejectedDebits", rejectedDebits.sum());
+        snapshot.put("credits", credits.sum());
+        return snapshot;
+    }
+}
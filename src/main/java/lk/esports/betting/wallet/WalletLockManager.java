@@ -0,0 +1,103 @@
+package lk.esports.betting.wallet;
+
+import lk.esports.betting.utils.LatencyHistogram;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes wallet operations per user with a fixed array of striped locks.
+ *
+ * A user id always maps to the same stripe, so two operations on one wallet run one
+ * after the other while different users almost always land on different stripes and
+ * proceed in parallel. Nothing is allocated per user. A lock that cannot be taken
+ * within TIMEOUT_MILLIS fails the operation instead of queueing behind a stuck one.
+ */
+public class WalletLockManager {
+
+    // Rounded up to a power of two so the stripe is a mask of the hash
+    private static final int STRIPES = Integer.highestOneBit(
+            Math.max(1, Integer.getInteger("esports.wallet.lockStripes", 256) * 2 - 1));
+    private static final long TIMEOUT_MILLIS = Long.getLong("esports.wallet.lockTimeoutMillis", 2000L);
+
+    private static final WalletLockManager INSTANCE = new WalletLockManager();
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LatencyHistogram contendedWait = new LatencyHistogram();
+
+    private WalletLockManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        MetricsRegistry.register("walletLocks", this::snapshot);
+    }
+
+    public static WalletLockManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Lock the user's wallet stripe; the caller must unlock() it in a finally block.
+     * Throws IllegalStateException if the lock is not free within the timeout.
+     */
+    public Lock acquire(Long userId) {
+        ReentrantLock lock = locks[stripe(userId)];
+        acquisitions.increment();
+        if (lock.tryLock()) {
+            return lock;
+        }
+
+        contended.increment();
+        long started = System.nanoTime();
+        boolean locked;
+        try {
+            locked = lock.tryLock(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for wallet lock", e);
+        }
+        contendedWait.record(System.nanoTime() - started);
+
+        if (!locked) {
+            timeouts.increment();
+            throw new IllegalStateException("Wallet is busy, please try again");
+        }
+        return lock;
+    }
+
+    private static int stripe(Long userId) {
+        long id = userId != null ? userId : 0L;
+        // Spread sequential ids across stripes
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        int held = 0;
+        int queued = 0;
+        for (ReentrantLock lock : locks) {
+            if (lock.isLocked()) {
+                held++;
+            }
+            queued += lock.getQueueLength();
+        }
+        snapshot.put("stripes", STRIPES);
+        snapshot.put("timeoutMillis", TIMEOUT_MILLIS);
+        snapshot.put("acquisitions", acquisitions.sum());
+        snapshot.put("contended", contended.sum());
+        snapshot.put("timeouts", timeouts.sum());
+        snapshot.put("heldStripes", held);
+        snapshot.put("queuedThreads", queued);
+        snapshot.put("contendedWait", contendedWait.snapshot());
+        return snapshot;
+    }
+}
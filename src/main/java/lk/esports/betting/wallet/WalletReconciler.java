@@ -0,0 +1,247 @@
+package lk.esports.betting.wallet;
+
+import lk.esports.betting.entity.WalletSnapshot;
+import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Verifies wallet balances against the ledger and rolls their snapshots forward.
+ *
+ * An account is consistent when its snapshot balance plus the ledger entries after
+ * the snapshot equals users.wallet_balance, so verifying it reads only the entries
+ * since the last snapshot. A consistent account's snapshot is advanced to its
+ * current balance; a mismatch is logged and the snapshot is left where it was so the
+ * disputed entries stay in the tail and the snapshot is flagged mismatched.
+ *
+ * Every INTERVAL_MILLIS up to BATCH_SIZE accounts are reconciled: first users that have
+ * no snapshot yet, then snapshots with ledger entries past them, walked in user id
+ * order from where the previous run stopped. Flagged snapshots are skipped until a
+ * manual verify finds them consistent again, so they cannot fill every batch.
+ *
+ * The first snapshot of an account takes its current balance minus the entries
+ * already in the ledger as the opening balance, which covers balances that predate
+ * the ledger.
+ */
+public class WalletReconciler {
+
+    private static final Logger logger = Logger.getLogger(WalletReconciler.class.getName());
+
+    private static final long INTERVAL_MILLIS = Long.getLong("esports.wallet.snapshotIntervalMillis", 15 * 60 * 1000L);
+    private static final int BATCH_SIZE = Integer.getInteger("esports.wallet.snapshotBatch", 500);
+
+    private static final String UNOPENED_ACCOUNTS_SQL =
+            "SELECT u.id FROM users u " +
+            "LEFT JOIN wallet_snapshots s ON s.user_id = u.id " +
+            "WHERE s.user_id IS NULL " +
+            "ORDER BY u.id LIMIT ?1";
+
+    private static final String DUE_ACCOUNTS_SQL =
+            "SELECT s.user_id FROM wallet_snapshots s " +
+            "WHERE s.user_id > ?1 AND s.mismatched = false " +
+            "AND EXISTS (SELECT 1 FROM wallet_ledger l WHERE l.user_id = s.user_id AND l.id > s.last_entry_id) " +
+            "ORDER BY s.user_id LIMIT ?2";
+
+    private static final WalletReconciler INSTANCE = new WalletReconciler();
+
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private final LongAdder entriesChecked = new LongAdder();
+    private volatile long cursor = 0L;
+    private volatile boolean started = false;
+
+    private WalletReconciler() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wallet-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MetricsRegistry.register("walletReconciler", this::snapshot);
+    }
+
+    public static WalletReconciler getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start() {
+        if (!started) {
+            scheduler.scheduleWithFixedDelay(this::reconcileDueAccounts, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            started = true;
+        }
+    }
+
+    /**
+     * Reconcile the accounts without a snapshot and the next accounts that have ledger
+     * entries past their snapshot
+     */
+    public void reconcileDueAccounts() {
+        runs.increment();
+        List<Long> userIds = new ArrayList<>();
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            addIds(userIds, entityManager.createNativeQuery(UNOPENED_ACCOUNTS_SQL)
+                    .setParameter(1, BATCH_SIZE)
+                    .getResultList());
+
+            int remaining = BATCH_SIZE - userIds.size();
+            if (remaining > 0) {
+                List<?> due = entityManager.createNativeQuery(DUE_ACCOUNTS_SQL)
+                        .setParameter(1, cursor)
+                        .setParameter(2, remaining)
+                        .getResultList();
+                addIds(userIds, due);
+                // A short page reached the end, so the next run starts over
+                cursor = due.size() < remaining ? 0L : userIds.get(userIds.size() - 1);
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error finding wallets to reconcile", e);
+            return;
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+
+        for (Long userId : userIds) {
+            try {
+                verify(userId);
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Error reconciling wallet of user " + userId, e);
+            }
+        }
+    }
+
+    private static void addIds(List<Long> userIds, List<?> rows) {
+        for (Object row : rows) {
+            userIds.add(((Number) row).longValue());
+        }
+    }
+
+    /**
+     * Check one wallet against its snapshot and ledger tail and advance the snapshot if
+     * they agree. The user's row is locked for the check, so no debit or credit can
+     * commit between reading the balance and summing the entries.
+     */
+    public Map<String, Object> verify(Long userId) {
+        EntityManager entityManager = null;
+        try {
+            entityManager = DatabaseUtil.createEntityManager();
+            entityManager.getTransaction().begin();
+
+            List<?> balanceRows = entityManager.createNativeQuery(
+                    "SELECT wallet_balance FROM users WHERE id = ?1 FOR UPDATE")
+                    .setParameter(1, userId)
+                    .getResultList();
+            if (balanceRows.isEmpty()) {
+                entityManager.getTransaction().rollback();
+                throw new IllegalArgumentException("User not found");
+            }
+            BigDecimal balance = (BigDecimal) balanceRows.get(0);
+
+            WalletSnapshot snapshot = entityManager.find(WalletSnapshot.class, userId);
+            long afterEntryId = snapshot != null ? snapshot.getLastEntryId() : 0L;
+
+            Object[] tail = entityManager.createQuery(
+                    "SELECT COALESCE(SUM(e.amount), 0), MAX(e.id), COUNT(e) FROM WalletLedgerEntry e " +
+                    "WHERE e.userId = :userId AND e.id > :afterId", Object[].class)
+                    .setParameter("userId", userId)
+                    .setParameter("afterId", afterEntryId)
+                    .getSingleResult();
+            BigDecimal tailSum = (BigDecimal) tail[0];
+            long entries = (Long) tail[2];
+            long lastEntryId = tail[1] != null ? (Long) tail[1] : afterEntryId;
+
+            boolean opening = snapshot == null;
+            if (opening) {
+                snapshot = new WalletSnapshot(userId);
+                snapshot.setBalance(balance.subtract(tailSum));
+                entityManager.persist(snapshot);
+                opened.increment();
+            }
+
+            BigDecimal ledgerBalance = snapshot.getBalance().add(tailSum);
+            boolean consistent = ledgerBalance.compareTo(balance) == 0;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("userId", userId);
+            result.put("balance", balance);
+            result.put("snapshotBalance", snapshot.getBalance());
+            result.put("snapshotEntryId", afterEntryId);
+            result.put("tailEntries", entries);
+            result.put("ledgerBalance", ledgerBalance);
+            result.put("consistent", consistent);
+            result.put("opened", opening);
+
+            if (consistent) {
+                if (entries > 0) {
+                    snapshot.advance(balance, lastEntryId, entries);
+                }
+                snapshot.setMismatched(false);
+            } else {
+                snapshot.setMismatched(true);
+                mismatches.increment();
+                logger.warning("Wallet of user " + userId + " does not match its ledger: balance " + balance +
+                        ", ledger " + ledgerBalance + " (" + entries + " entries after " + afterEntryId + ")");
+            }
+
+            entityManager.getTransaction().commit();
+            verified.increment();
+            entriesChecked.add(entries);
+            return result;
+
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            if (entityManager != null && entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            logger.log(Level.SEVERE, "Error verifying wallet of user " + userId, e);
+            throw new RuntimeException("Failed to verify wallet", e);
+        } finally {
+            if (entityManager != null && entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("intervalMillis", INTERVAL_MILLIS);
+        snapshot.put("runs", runs.sum());
+        snapshot.put("verified", verified.sum());
+        snapshot.put("opened", opened.sum());
+        snapshot.put("mismatches", mismatches.sum());
+        snapshot.put("entriesChecked", entriesChecked.sum());
+        snapshot.put("cursor", cursor);
+        return snapshot;
+    }
+}
@@ -1,5 +1,7 @@
 package lk.esports.betting.web.filter;
 
+import lk.esports.betting.security.SessionTokenService;
+
 import jakarta.servlet.*;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,9 +14,13 @@ import java.util.List;
 import java.util.logging.Logger;
 
 /**
- * Authentication filter that checks if user is logged in before accessing protected resources
+ * Authentication filter that checks if user is logged in before accessing protected resources.
+ *
+ * With session tokens enabled the token cookie is the only credential: a valid token
+ * authenticates the request on any node and its user id is bound into the local session
+ * for the servlets; a missing or revoked one clears the session's user.
  */
-@WebFilter(filterName = "AuthFilter", urlPatterns = {
+@WebFilter(filterName = "AuthFilter", asyncSupported = true, urlPatterns = {
         "/dashboard",
         "/dashboard/*",
         "/bets/*",
@@ -22,7 +28,8 @@ import java.util.logging.Logger;
         "/profile",
         "/profile/*",
         "/wallet",
-        "/wallet/*"
+        "/wallet/*",
+        "/api/*"
 })
 public class AuthFilter implements Filter {
 
@@ -37,6 +44,11 @@ public class AuthFilter implements Filter {
             "/matches/tournaments"
     );
 
+    // URLs open to everyone that still identify the user when they can
+    private static final List<String> OPTIONAL_PATHS = Arrays.asList(
+            "/api/"
+    );
+
     // AJAX endpoints that should return JSON error instead of redirect
     private static final List<String> AJAX_PATHS = Arrays.asList(
             "/bets/place",
@@ -66,6 +78,28 @@ public class AuthFilter implements Filter {
             return;
         }
 
+        if (SessionTokenService.isEnabled()) {
+            SessionTokenService.Claims claims = AuthTokens.resolve(request);
+            if (claims != null) {
+                bindTokenUser(request, claims.getUserId());
+                AuthTokens.refresh(request, response, claims);
+                filterChain.doFilter(request, response);
+                return;
+            }
+            clearSessionUser(request);
+            if (isOptionalPath(path)) {
+                filterChain.doFilter(request, response);
+            } else {
+                handleUnauthenticatedRequest(request, response, path);
+            }
+            return;
+        }
+
+        if (isOptionalPath(path)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         // Get session
         HttpSession session = request.getSession(false);
 
@@ -107,6 +141,38 @@ public class AuthFilter implements Filter {
         return EXCLUDED_PATHS.stream().anyMatch(path::startsWith);
     }
 
+    private boolean isOptionalPath(String path) {
+        return OPTIONAL_PATHS.stream().anyMatch(path::startsWith);
+    }
+
+    /**
+     * Servlets read the user id from the session, so seed it on nodes that have not seen this token's user
+     */
+    private void bindTokenUser(HttpServletRequest request, Long userId) {
+        request.setAttribute("currentUserId", userId);
+
+        HttpSession session = request.getSession(true);
+        if (!userId.equals(session.getAttribute("userId"))) {
+            clearUserAttributes(session);
+            session.setAttribute("userId", userId);
+        }
+    }
+
+    private void clearSessionUser(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if (session != null && session.getAttribute("userId") != null) {
+            clearUserAttributes(session);
+        }
+    }
+
+    private void clearUserAttributes(HttpSession session) {
+        session.removeAttribute("user");
+        session.removeAttribute("userId");
+        session.removeAttribute("username");
+        session.removeAttribute("userEmail");
+        session.removeAttribute("userBalance");
+    }
+
     private boolean isAjaxRequest(HttpServletRequest request) {
         String xmlHttpRequest = request.getHeader("X-Requested-With");
         String contentType = request.getContentType();
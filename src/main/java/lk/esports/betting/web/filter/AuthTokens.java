@@ -0,0 +1,100 @@
+package lk.esports.betting.web.filter;
+
+import lk.esports.betting.security.SessionTokenService;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Carries session tokens in an HttpOnly cookie when token authentication is enabled
+ */
+public final class AuthTokens {
+
+    private static final Logger logger = Logger.getLogger(AuthTokens.class.getName());
+
+    public static final String COOKIE_NAME = "ESPORTS_TOKEN";
+
+    private AuthTokens() {
+    }
+
+    /**
+     * Issue a token for the user and set its cookie; does nothing when tokens are disabled
+     */
+    public static void issue(HttpServletRequest request, HttpServletResponse response, Long userId, boolean rememberMe) {
+        if (!SessionTokenService.isEnabled()) {
+            return;
+        }
+        String token = SessionTokenService.getInstance().issue(userId, rememberMe,
+                request.getRemoteAddr(), request.getHeader("User-Agent"));
+        response.addCookie(cookie(request, token, maxAge(rememberMe)));
+    }
+
+    /**
+     * The verified claims of the request's token cookie, or null
+     */
+    public static SessionTokenService.Claims resolve(HttpServletRequest request) {
+        String token = readToken(request);
+        return token != null ? SessionTokenService.getInstance().verify(token) : null;
+    }
+
+    /**
+     * Replace the cookie with a token that expires later once a session token is half idle
+     */
+    public static void refresh(HttpServletRequest request, HttpServletResponse response,
+                               SessionTokenService.Claims claims) {
+        String token = SessionTokenService.getInstance().refresh(claims);
+        if (token != null) {
+            response.addCookie(cookie(request, token, maxAge(claims.isRememberMe())));
+        }
+    }
+
+    /**
+     * Revoke the request's token, if any, and delete its cookie
+     */
+    public static void revoke(HttpServletRequest request, HttpServletResponse response) {
+        if (!SessionTokenService.isEnabled()) {
+            return;
+        }
+        String token = readToken(request);
+        if (token != null) {
+            try {
+                SessionTokenService.getInstance().revoke(token);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Error revoking session token", e);
+            }
+        }
+        response.addCookie(cookie(request, "", 0));
+    }
+
+    private static String readToken(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    // Without remember me the cookie ends with the browser session
+    private static int maxAge(boolean rememberMe) {
+        return rememberMe ? (int) SessionTokenService.rememberTtlSeconds() : -1;
+    }
+
+    private static Cookie cookie(HttpServletRequest request, String value, int maxAge) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setMaxAge(maxAge);
+        cookie.setAttribute("SameSite", "Lax");
+        return cookie;
+    }
+}
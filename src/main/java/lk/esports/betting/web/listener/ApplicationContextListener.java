@@ -1,6 +1,19 @@
 package lk.esports.betting.web.listener;
 
+import lk.esports.betting.engine.BetIngestionQueue;
+import lk.esports.betting.engine.MatchEventFeed;
+import lk.esports.betting.engine.MatchListingCache;
+import lk.esports.betting.engine.MatchPoolAggregator;
+import lk.esports.betting.engine.OddsEngine;
+import lk.esports.betting.engine.RiskManager;
+import lk.esports.betting.engine.SettlementScheduler;
+import lk.esports.betting.security.PasswordHashingExecutor;
+import lk.esports.betting.security.PasswordRehashQueue;
+import lk.esports.betting.security.SessionReaper;
+import lk.esports.betting.security.SessionTokenService;
 import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.wallet.WalletReconciler;
+import lk.esports.betting.web.sse.EventStreamHub;
 import com.mysql.cj.jdbc.AbandonedConnectionCleanupThread;
 
 import jakarta.servlet.ServletContextEvent;
@@ -30,9 +43,21 @@ public class ApplicationContextListener implements ServletContextListener {
 
             if (dbHealthy) {
                 logger.info("Database initialized successfully");
+
+                // Load in-memory betting state before the first request arrives
+                MatchPoolAggregator.getInstance().rebuild();
+                RiskManager.getInstance().rebuild();
+                MatchListingCache.getInstance().reload();
+                WalletReconciler.getInstance().start();
+                SessionReaper.getInstance().start();
             } else {
                 logger.warning("Database is not healthy. Check MySQL server and connection settings.");
             }
+
+            // Keeps retrying its deny-list sync until the database is reachable
+            if (SessionTokenService.isEnabled()) {
+                SessionTokenService.getInstance().start();
+            }
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error during application initialization", e);
         }
@@ -43,6 +68,24 @@ public class ApplicationContextListener implements ServletContextListener {
         logger.info("Application context being destroyed - cleaning up resources...");
 
         try {
+            // Stop background workers before the database goes away
+            if (BetIngestionQueue.isEnabled()) {
+                BetIngestionQueue.getInstance().shutdown();
+            }
+            SettlementScheduler.getInstance().shutdown();
+            OddsEngine.getInstance().shutdown();
+            MatchListingCache.getInstance().shutdown();
+            EventStreamHub.getInstance().shutdown();
+            MatchEventFeed.getInstance().shutdown();
+            WalletReconciler.getInstance().shutdown();
+            PasswordHashingExecutor.getInstance().shutdown();
+            PasswordRehashQueue.getInstance().shutdown();
+            SessionTokenService.getInstance().shutdown();
+            SessionReaper.getInstance().shutdown();
+
+            // Close EntityManagerFactory
+            DatabaseUtil.closeEntityManagerFactory();
+
             // Shutdown MySQL cleanup thread to prevent illegal access errors
             try {
                 AbandonedConnectionCleanupThread.checkedShutdown();
@@ -63,9 +106,6 @@ public class ApplicationContextListener implements ServletContextListener {
                 }
             }
 
-            // Close EntityManagerFactory
-            DatabaseUtil.closeEntityManagerFactory();
-
             logger.info("Application cleanup completed");
 
         } catch (Exception e) {
@@ -3,11 +3,17 @@ package lk.esports.betting.web.servlet;
 import lk.esports.betting.ejb.local.UserService;
 import lk.esports.betting.ejb.local.MatchService;
 import lk.esports.betting.ejb.local.BettingService;
-import lk.esports.betting.entity.User;
+import lk.esports.betting.engine.MatchEventFeed;
+import lk.esports.betting.engine.MatchListingCache;
 import lk.esports.betting.entity.Match;
 import lk.esports.betting.utils.DatabaseUtil;
+import lk.esports.betting.utils.MetricsRegistry;
+import lk.esports.betting.wallet.BalanceCache;
+import lk.esports.betting.wallet.WalletReconciler;
+import lk.esports.betting.web.sse.EventStreamHub;
 
 import jakarta.ejb.EJB;
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -20,17 +26,22 @@ import com.google.gson.GsonBuilder;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
-@WebServlet("/api/*")
+@WebServlet(urlPatterns = "/api/*", asyncSupported = true)
 public class APIServlet extends HttpServlet {
 
     private static final Logger logger = Logger.getLogger(APIServlet.class.getName());
 
+    // Metrics expose internal state to anonymous callers, so they are served only when enabled
+    private static final boolean METRICS_ENABLED = Boolean.getBoolean("esports.metrics.enabled");
+
     @EJB
     private UserService userService;
 
@@ -60,8 +71,14 @@ public class APIServlet extends HttpServlet {
                 handleGetLiveMatches(request, response);
             } else if (pathInfo.equals("/matches/upcoming")) {
                 handleGetUpcomingMatches(request, response);
+            } else if (pathInfo.equals("/stream")) {
+                handleEventStream(request, response);
             } else if (pathInfo.equals("/health")) {
                 handleHealthCheck(request, response);
+            } else if (pathInfo.equals("/metrics") && METRICS_ENABLED) {
+                handleMetrics(request, response);
+            } else if (pathInfo.equals("/wallet/verify")) {
+                handleVerifyWallet(request, response);
             } else {
                 sendJsonError(response, HttpServletResponse.SC_NOT_FOUND, "API endpoint not found");
             }
@@ -76,15 +93,25 @@ public class APIServlet extends HttpServlet {
         apiInfo.put("name", "E-Sports Betting API");
         apiInfo.put("version", "1.0");
         apiInfo.put("status", "active");
-        apiInfo.put("endpoints", Map.of(
+        Map<String, Object> endpoints = new HashMap<>(Map.of(
                 "user_balance", "/api/user/balance",
                 "live_matches", "/api/matches/live",
                 "upcoming_matches", "/api/matches/upcoming",
-                "health_check", "/api/health"
+                "event_stream", "/api/stream",
+                "health_check", "/api/health",
+                "wallet_verify", "/api/wallet/verify"
         ));
+        if (METRICS_ENABLED) {
+            endpoints.put("metrics", "/api/metrics");
+        }
+        apiInfo.put("endpoints", endpoints);
         sendJsonResponse(response, apiInfo);
     }
 
+    /**
+     * Balance of the logged-in user from the balance cache. With ?since=<version> an
+     * unchanged balance is answered with changed=false and no balance.
+     */
     private void handleGetUserBalance(HttpServletRequest request, HttpServletResponse response) throws IOException {
         HttpSession session = request.getSession(false);
         if (session == null || session.getAttribute("userId") == null) {
@@ -93,19 +120,25 @@ public class APIServlet extends HttpServlet {
         }
 
         try {
-            if (userService == null) {
-                sendJsonError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "User service unavailable");
-                return;
-            }
-
             Long userId = (Long) session.getAttribute("userId");
-            User user = userService.findUserById(userId);
+            BalanceCache.Entry balance = BalanceCache.getInstance().get(userId);
 
-            if (user != null) {
+            if (balance != null) {
                 Map<String, Object> result = new HashMap<>();
                 result.put("success", true);
-                result.put("balance", user.getWalletBalance());
                 result.put("userId", userId);
+                result.put("version", balance.getVersion());
+
+                String since = request.getParameter("since");
+                if (since != null && since.equals(String.valueOf(balance.getVersion()))) {
+                    result.put("changed", false);
+                } else {
+                    result.put("changed", true);
+                    result.put("balance", balance.getBalance());
+                    result.put("active", balance.isActive());
+                    // Keeps the session copy from going stale between page loads
+                    session.setAttribute("userBalance", balance.getBalance());
+                }
                 sendJsonResponse(response, result);
             } else {
                 sendJsonError(response, HttpServletResponse.SC_NOT_FOUND, "User not found");
@@ -118,16 +151,11 @@ public class APIServlet extends HttpServlet {
 
     private void handleGetLiveMatches(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
-            if (matchService == null) {
-                sendJsonError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Match service unavailable");
-                return;
-            }
-
-            List<Match> liveMatches = matchService.getLiveMatches();
+            List<Match> liveMatches = MatchListingCache.getInstance().getLiveMatches();
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
-            result.put("matches", liveMatches != null ? liveMatches : List.of());
+            result.put("matches", matchSummaries(liveMatches));
             result.put("count", liveMatches != null ? liveMatches.size() : 0);
 
             sendJsonResponse(response, result);
@@ -139,16 +167,11 @@ public class APIServlet extends HttpServlet {
 
     private void handleGetUpcomingMatches(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
-            if (matchService == null) {
-                sendJsonError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Match service unavailable");
-                return;
-            }
-
-            List<Match> upcomingMatches = matchService.getUpcomingMatches();
+            List<Match> upcomingMatches = MatchListingCache.getInstance().getUpcomingMatches();
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
-            result.put("matches", upcomingMatches != null ? upcomingMatches : List.of());
+            result.put("matches", matchSummaries(upcomingMatches));
             result.put("count", upcomingMatches != null ? upcomingMatches.size() : 0);
 
             sendJsonResponse(response, result);
@@ -158,6 +181,97 @@ public class APIServlet extends HttpServlet {
         }
     }
 
+    private static List<Map<String, Object>> matchSummaries(List<Match> matches) {
+        if (matches == null) {
+            return List.of();
+        }
+        List<Map<String, Object>> summaries = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            summaries.add(matchSummary(match));
+        }
+        return summaries;
+    }
+
+    /**
+     * JSON shape of a match in the listing responses; the same fields as a match event
+     */
+    public static Map<String, Object> matchSummary(Match match) {
+        Map<String, Object> team1 = new LinkedHashMap<>();
+        team1.put("id", match.getTeam1().getId());
+        team1.put("teamName", match.getTeam1().getTeamName());
+        Map<String, Object> team2 = new LinkedHashMap<>();
+        team2.put("id", match.getTeam2().getId());
+        team2.put("teamName", match.getTeam2().getTeamName());
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("id", match.getId());
+        summary.put("tournament", match.getTournamentName());
+        summary.put("matchDate", match.getMatchDate() != null ? match.getMatchDate().toString() : null);
+        summary.put("status", match.getStatus() != null ? match.getStatus().name() : null);
+        summary.put("bettingEnabled", match.getBettingEnabled());
+        summary.put("team1", team1);
+        summary.put("team2", team2);
+        summary.put("team1Odds", match.getTeam1Odds());
+        summary.put("team2Odds", match.getTeam2Odds());
+        summary.put("team1Score", match.getTeam1Score());
+        summary.put("team2Score", match.getTeam2Score());
+        summary.put("winnerTeamId", match.getWinnerTeam() != null ? match.getWinnerTeam().getId() : null);
+        summary.put("totalPool", match.getTotalPool());
+        return summary;
+    }
+
+    /**
+     * Server-Sent Events stream of match changes (all matches, or one with ?matchId=)
+     * plus settlement notifications for the logged-in user's bets. The request thread
+     * is released as soon as the stream is handed to EventStreamHub.
+     */
+    private void handleEventStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Long matchId = null;
+        String matchParam = request.getParameter("matchId");
+        if (matchParam != null && !matchParam.trim().isEmpty()) {
+            try {
+                matchId = Long.valueOf(matchParam.trim());
+            } catch (NumberFormatException e) {
+                sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid match id");
+                return;
+            }
+        }
+
+        List<MatchEventFeed.MatchEvent> initialEvents = new ArrayList<>();
+        if (matchId != null) {
+            MatchEventFeed.MatchEvent current = MatchEventFeed.getInstance().getSnapshot(matchId);
+            if (current == null) {
+                sendJsonError(response, HttpServletResponse.SC_NOT_FOUND, "Match not found");
+                return;
+            }
+            initialEvents.add(current);
+        } else {
+            for (Match match : MatchListingCache.getInstance().getLiveMatches()) {
+                MatchEventFeed.MatchEvent current = MatchEventFeed.getInstance().getSnapshot(match.getId());
+                if (current != null) {
+                    initialEvents.add(current);
+                }
+            }
+        }
+
+        HttpSession session = request.getSession(false);
+        Long userId = session != null ? (Long) session.getAttribute("userId") : null;
+
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no");
+        response.setHeader("Access-Control-Allow-Origin", "*");
+
+        AsyncContext asyncContext = request.startAsync();
+        try {
+            EventStreamHub.getInstance().open(asyncContext, userId, matchId, initialEvents);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not open event stream", e);
+            asyncContext.complete();
+        }
+    }
+
     private void handleHealthCheck(HttpServletRequest request, HttpServletResponse response) throws IOException {
         Map<String, Object> health = new HashMap<>();
         health.put("status", "healthy");
@@ -180,6 +294,32 @@ public class APIServlet extends HttpServlet {
         sendJsonResponse(response, health);
     }
 
+    private void handleMetrics(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("timestamp", System.currentTimeMillis());
+        metrics.put("metrics", MetricsRegistry.snapshot());
+        sendJsonResponse(response, metrics);
+    }
+
+    /**
+     * Reconcile the logged-in user's balance against the wallet ledger
+     */
+    private void handleVerifyWallet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        HttpSession session = request.getSession(false);
+        if (session == null || session.getAttribute("userId") == null) {
+            sendJsonError(response, HttpServletResponse.SC_UNAUTHORIZED, "Please log in to verify your wallet");
+            return;
+        }
+
+        try {
+            Map<String, Object> result = new HashMap<>(WalletReconciler.getInstance().verify((Long) session.getAttribute("userId")));
+            result.put("success", true);
+            sendJsonResponse(response, result);
+        } catch (IllegalArgumentException e) {
+            sendJsonError(response, HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+        }
+    }
+
     private void sendJsonResponse(HttpServletResponse response, Object data) throws IOException {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
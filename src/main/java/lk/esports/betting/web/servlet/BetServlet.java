@@ -1,11 +1,13 @@
 package lk.esports.betting.web.servlet;
 
 import lk.esports.betting.ejb.local.BettingService;
+import lk.esports.betting.engine.BetIngestionQueue;
+import lk.esports.betting.engine.IdempotencyKeyMismatchException;
 import lk.esports.betting.ejb.local.UserService;
 import lk.esports.betting.ejb.local.MatchService;
 import lk.esports.betting.entity.Bet;
-import lk.esports.betting.entity.User;
 import lk.esports.betting.entity.Match;
+import lk.esports.betting.utils.CursorPage;
 import lk.esports.betting.utils.EJBServiceLocator;
 
 import jakarta.servlet.ServletException;
@@ -21,9 +23,16 @@ import com.google.gson.GsonBuilder;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -32,6 +41,12 @@ public class BetServlet extends HttpServlet {
 
     private static final Logger logger = Logger.getLogger(BetServlet.class.getName());
 
+    private static final Pattern IDEMPOTENCY_KEY_PATTERN = Pattern.compile("[A-Za-z0-9_-]{8,64}");
+
+    private static final int SC_UNPROCESSABLE_ENTITY = 422;
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+    private static final long INGESTION_TIMEOUT_MILLIS = Long.getLong("esports.ingestion.timeoutMillis", 10_000L);
+
     private final Gson gson = new GsonBuilder()
             .setDateFormat("yyyy-MM-dd HH:mm:ss")
             .create();
@@ -110,15 +125,29 @@ public class BetServlet extends HttpServlet {
             }
 
             String format = request.getParameter("format");
-            List<Bet> userBets = bettingService.getUserBets(userId);
+            CursorPage<Bet> page = bettingService.getUserBetsPage(userId, null, request.getParameter("cursor"),
+                    parseLimit(request.getParameter("limit")));
+            List<Bet> userBets = page.getItems();
 
             if ("json".equals(format)) {
-                sendJsonResponse(response, userBets);
+                Map<String, Object> result = new HashMap<>();
+                result.put("bets", userBets);
+                result.put("nextCursor", page.getNextCursor());
+                result.put("hasMore", page.isHasMore());
+                sendJsonResponse(response, result);
             } else {
-                request.setAttribute("userBets", userBets != null ? userBets : List.of());
+                request.setAttribute("userBets", userBets);
+                request.setAttribute("nextCursor", page.getNextCursor());
                 request.setAttribute("pageTitle", "My Bets");
                 request.getRequestDispatcher("/my-bets.jsp").forward(request, response);
             }
+        } catch (IllegalArgumentException e) {
+            // Tampered or stale cursor
+            if ("json".equals(request.getParameter("format"))) {
+                sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid cursor");
+            } else {
+                response.sendRedirect(request.getContextPath() + "/bets");
+            }
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error getting user bets", e);
             request.setAttribute("errorMessage", "Error loading your bets. Please try again.");
@@ -141,30 +170,46 @@ public class BetServlet extends HttpServlet {
 
             String format = request.getParameter("format");
             String status = request.getParameter("status");
+            String cursor = request.getParameter("cursor");
 
-            List<Bet> bets;
+            Bet.BetStatus betStatus = null;
             if ("won".equals(status)) {
-                bets = bettingService.getUserWinningBets(userId);
+                betStatus = Bet.BetStatus.WON;
             } else if ("lost".equals(status)) {
-                bets = bettingService.getUserLosingBets(userId);
+                betStatus = Bet.BetStatus.LOST;
             } else if ("pending".equals(status)) {
-                bets = bettingService.getUserPendingBets(userId);
-            } else {
-                bets = bettingService.getUserBets(userId);
+                betStatus = Bet.BetStatus.PENDING;
             }
 
+            CursorPage<Bet> page = bettingService.getUserBetsPage(userId, betStatus, cursor,
+                    parseLimit(request.getParameter("limit")));
+            List<Bet> bets = page.getItems();
+
             if ("json".equals(format)) {
                 Map<String, Object> response_data = new HashMap<>();
-                response_data.put("bets", bets != null ? bets : List.of());
-                response_data.put("totalBets", bets != null ? bets.size() : 0);
+                response_data.put("bets", bets);
+                response_data.put("totalBets", bets.size());
                 response_data.put("status", status != null ? status : "all");
+                response_data.put("nextCursor", page.getNextCursor());
+                response_data.put("hasMore", page.isHasMore());
                 sendJsonResponse(response, response_data);
             } else {
-                request.setAttribute("bets", bets != null ? bets : List.of());
+                request.setAttribute("bets", bets);
+                request.setAttribute("nextCursor", page.getNextCursor());
+                request.setAttribute("firstPage", cursor == null || cursor.isBlank());
                 request.setAttribute("pageTitle", "Betting History");
                 request.setAttribute("filterStatus", status);
                 request.getRequestDispatcher("/betting-history.jsp").forward(request, response);
             }
+        } catch (IllegalArgumentException e) {
+            // Tampered or stale cursor
+            if ("json".equals(request.getParameter("format"))) {
+                sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid cursor");
+            } else {
+                String status = request.getParameter("status");
+                response.sendRedirect(request.getContextPath() + "/bets/history" +
+                        (status != null ? "?status=" + URLEncoder.encode(status, StandardCharsets.UTF_8) : ""));
+            }
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error getting betting history", e);
             request.setAttribute("errorMessage", "Error loading betting history. Please try again.");
@@ -323,21 +368,22 @@ public class BetServlet extends HttpServlet {
                 return;
             }
 
-            // Validate bet
-            if (!bettingService.validateBet(userId, matchId, teamId, amount)) {
-                sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid bet");
-                return;
+            String idempotencyKey = request.getHeader("Idempotency-Key");
+            if (idempotencyKey == null) {
+                idempotencyKey = request.getParameter("idempotencyKey");
             }
-
-            // Check if user can place bet
-            if (!bettingService.canPlaceBet(userId, matchId, amount)) {
-                sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST,
-                        "Cannot place bet. Check your balance and bet limits.");
+            if (idempotencyKey != null && !IDEMPOTENCY_KEY_PATTERN.matcher(idempotencyKey).matches()) {
+                sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid idempotency key");
                 return;
             }
 
-            // Place the bet
-            Bet bet = bettingService.placeBet(userId, matchId, teamId, amount);
+            // Lowest odds the bettor accepts; a bet whose odds moved below them is rejected
+            String acceptedOddsStr = request.getParameter("acceptedOdds");
+            BigDecimal acceptedOdds = acceptedOddsStr != null && !acceptedOddsStr.trim().isEmpty()
+                    ? new BigDecimal(acceptedOddsStr.trim()) : null;
+
+            // Place the bet; account, match, team, duplicate and balance checks run inside placeBet
+            Bet bet = placeBet(bettingService, userId, matchId, teamId, amount, idempotencyKey, acceptedOdds);
 
             if (bet != null) {
                 Map<String, Object> result = new HashMap<>();
@@ -346,15 +392,12 @@ public class BetServlet extends HttpServlet {
                 result.put("betId", bet.getId());
                 result.put("potentialWinnings", bet.getPotentialWinnings());
                 result.put("odds", bet.getOddsAtBet());
+                result.put("replayed", bet.isReplayed());
 
                 // Update user balance in session
                 UserService userService = EJBServiceLocator.getUserService();
                 if (userService != null) {
-                    User user = userService.findUserById(userId);
-                    if (user != null) {
-                        HttpSession session = request.getSession();
-                        session.setAttribute("userBalance", user.getWalletBalance());
-                    }
+                    request.getSession().setAttribute("userBalance", userService.getUserBalance(userId));
                 }
 
                 sendJsonResponse(response, result);
@@ -366,8 +409,17 @@ public class BetServlet extends HttpServlet {
 
         } catch (NumberFormatException e) {
             sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid number format");
+        } catch (IdempotencyKeyMismatchException e) {
+            sendJsonError(response, SC_UNPROCESSABLE_ENTITY, e.getMessage());
         } catch (IllegalArgumentException e) {
             sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            sendJsonError(response, HttpServletResponse.SC_CONFLICT, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            sendJsonError(response, SC_TOO_MANY_REQUESTS, e.getMessage());
+        } catch (TimeoutException e) {
+            // The bet may still be placed; a retry with the same idempotency key returns it
+            sendJsonError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Your bet is still being processed. Please retry.");
         } catch (RuntimeException e) {
             logger.log(Level.SEVERE, "Error placing bet", e);
             sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
@@ -419,11 +471,7 @@ public class BetServlet extends HttpServlet {
             // Update user balance in session
             UserService userService = EJBServiceLocator.getUserService();
             if (userService != null) {
-                User user = userService.findUserById(userId);
-                if (user != null) {
-                    HttpSession session = request.getSession();
-                    session.setAttribute("userBalance", user.getWalletBalance());
-                }
+                request.getSession().setAttribute("userBalance", userService.getUserBalance(userId));
             }
 
             sendJsonResponse(response, result);
@@ -437,6 +485,14 @@ public class BetServlet extends HttpServlet {
         }
     }
 
+    private int parseLimit(String limit) {
+        try {
+            return limit != null ? Integer.parseInt(limit) : CursorPage.DEFAULT_LIMIT;
+        } catch (NumberFormatException e) {
+            return CursorPage.DEFAULT_LIMIT;
+        }
+    }
+
     private void sendJsonResponse(HttpServletResponse response, Object data) throws IOException {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
@@ -447,6 +503,26 @@ public class BetServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Place through the ingestion queue when it is enabled, otherwise directly
+     */
+    private Bet placeBet(BettingService bettingService, Long userId, Long matchId, Long teamId,
+                         BigDecimal amount, String idempotencyKey, BigDecimal acceptedOdds) throws Exception {
+        if (!BetIngestionQueue.isEnabled()) {
+            return bettingService.placeBet(userId, matchId, teamId, amount, idempotencyKey, acceptedOdds);
+        }
+        try {
+            return BetIngestionQueue.getInstance()
+                    .submit(userId, matchId, teamId, amount, idempotencyKey, acceptedOdds)
+                    .get(INGESTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     private void sendJsonError(HttpServletResponse response, int statusCode, String message) throws IOException {
         response.setStatus(statusCode);
         response.setContentType("application/json");
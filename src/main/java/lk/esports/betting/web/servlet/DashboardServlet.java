@@ -3,11 +3,14 @@ package lk.esports.betting.web.servlet;
 import lk.esports.betting.ejb.local.UserService;
 import lk.esports.betting.ejb.local.MatchService;
 import lk.esports.betting.ejb.local.BettingService;
+import lk.esports.betting.engine.MatchListingCache;
 import lk.esports.betting.entity.User;
 import lk.esports.betting.entity.Match;
 import lk.esports.betting.entity.Bet;
 import lk.esports.betting.entity.Transaction;
+import lk.esports.betting.utils.CursorPage;
 import lk.esports.betting.utils.EJBServiceLocator;
+import lk.esports.betting.web.filter.AuthTokens;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -145,8 +148,8 @@ public class DashboardServlet extends HttpServlet {
 
             if (matchService != null) {
                 try {
-                    upcomingMatches = matchService.getUpcomingMatches();
-                    liveMatches = matchService.getLiveMatches();
+                    upcomingMatches = MatchListingCache.getInstance().getUpcomingMatches();
+                    liveMatches = MatchListingCache.getInstance().getLiveMatches();
 
                     // Limit to first 6 matches for dashboard display
                     if (upcomingMatches != null && upcomingMatches.size() > 6) {
@@ -165,14 +168,14 @@ public class DashboardServlet extends HttpServlet {
             // Get user's recent bets
             List<Bet> recentBets = List.of();
             List<Bet> pendingBets = List.of();
+            boolean morePendingBets = false;
 
             if (bettingService != null) {
                 try {
-                    recentBets = bettingService.getUserBets(userId);
-                    if (recentBets != null && recentBets.size() > 5) {
-                        recentBets = recentBets.subList(0, 5);
-                    }
-                    pendingBets = bettingService.getUserPendingBets(userId);
+                    recentBets = bettingService.getUserBetsPage(userId, null, null, 5).getItems();
+                    CursorPage<Bet> pendingPage = bettingService.getUserBetsPage(userId, Bet.BetStatus.PENDING, null, 10);
+                    pendingBets = pendingPage.getItems();
+                    morePendingBets = pendingPage.isHasMore();
                 } catch (Exception e) {
                     logger.log(Level.WARNING, "Error loading user bets", e);
                     recentBets = List.of();
@@ -184,10 +187,7 @@ public class DashboardServlet extends HttpServlet {
             List<Transaction> recentTransactions = List.of();
             if (userService != null) {
                 try {
-                    recentTransactions = userService.getUserTransactions(userId);
-                    if (recentTransactions != null && recentTransactions.size() > 5) {
-                        recentTransactions = recentTransactions.subList(0, 5);
-                    }
+                    recentTransactions = userService.getUserTransactions(userId, null, 5).getItems();
                 } catch (Exception e) {
                     logger.log(Level.WARNING, "Error loading user transactions", e);
                     recentTransactions = List.of();
@@ -202,6 +202,7 @@ public class DashboardServlet extends HttpServlet {
             request.setAttribute("liveMatches", liveMatches != null ? liveMatches : List.of());
             request.setAttribute("recentBets", recentBets != null ? recentBets : List.of());
             request.setAttribute("pendingBets", pendingBets != null ? pendingBets : List.of());
+            request.setAttribute("morePendingBets", morePendingBets);
             request.setAttribute("recentTransactions", recentTransactions != null ? recentTransactions : List.of());
             request.setAttribute("userStats", userStats);
 
@@ -460,7 +461,8 @@ public class DashboardServlet extends HttpServlet {
 
         Long userId = (Long) session.getAttribute("userId");
 
-        // Invalidate session
+        // Invalidate session and revoke its token
+        AuthTokens.revoke(request, response);
         session.invalidate();
 
         logger.info("User logged out: " + userId);
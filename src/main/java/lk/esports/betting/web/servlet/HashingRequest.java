@@ -0,0 +1,82 @@
+package lk.esports.betting.web.servlet;
+
+import lk.esports.betting.security.PasswordHashingExecutor;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the password work of a login or registration request on the hashing pool and
+ * finishes the request asynchronously, so the container thread is released while
+ * BCrypt runs. The handler is called exactly once: with the task's result, with its
+ * failure, with a RejectedExecutionException when the pool is saturated, or with a
+ * TimeoutException when the request times out first.
+ */
+final class HashingRequest {
+
+    private static final Logger logger = Logger.getLogger(HashingRequest.class.getName());
+
+    private static final long TIMEOUT_MILLIS = Long.getLong("esports.auth.timeoutMillis", 30_000L);
+
+    interface Handler<T> {
+        void handle(AsyncContext asyncContext, T result, Throwable error) throws Exception;
+    }
+
+    private HashingRequest() {
+    }
+
+    static <T> void run(HttpServletRequest request, Callable<T> task, Handler<T> handler) {
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(TIMEOUT_MILLIS);
+        AtomicBoolean finished = new AtomicBoolean();
+
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                finish(asyncContext, finished, handler, null, new TimeoutException("Authentication timed out"));
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                finished.set(true);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        try {
+            PasswordHashingExecutor.getInstance().submit(task)
+                    .whenComplete((result, error) -> finish(asyncContext, finished, handler, result, error));
+        } catch (RejectedExecutionException e) {
+            finish(asyncContext, finished, handler, null, e);
+        }
+    }
+
+    private static <T> void finish(AsyncContext asyncContext, AtomicBoolean finished, Handler<T> handler,
+                                   T result, Throwable error) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            handler.handle(asyncContext, result, error);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error completing authentication request", e);
+            asyncContext.complete();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package lk.esports.betting.web.servlet;
 
 import lk.esports.betting.ejb.local.MatchService;
+import lk.esports.betting.engine.MatchListingCache;
 import lk.esports.betting.entity.Match;
 import lk.esports.betting.utils.DatabaseUtil;
 import lk.esports.betting.utils.EJBServiceLocator;
@@ -49,8 +50,8 @@ public class HomeServlet extends HttpServlet {
 
             if (matchService != null) {
                 try {
-                    featuredMatches = matchService.getUpcomingMatches();
-                    liveMatches = matchService.getLiveMatches();
+                    featuredMatches = MatchListingCache.getInstance().getUpcomingMatches();
+                    liveMatches = MatchListingCache.getInstance().getLiveMatches();
 
                     // Limit to first 6 matches for home page
                     if (featuredMatches != null && featuredMatches.size() > 6) {
@@ -2,8 +2,11 @@ package lk.esports.betting.web.servlet;
 
 import lk.esports.betting.ejb.local.UserService;
 import lk.esports.betting.entity.User;
+import lk.esports.betting.security.SessionTokenService;
 import lk.esports.betting.utils.EJBServiceLocator;
+import lk.esports.betting.web.filter.AuthTokens;
 
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -12,10 +15,12 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
-@WebServlet("/login")
+@WebServlet(urlPatterns = "/login", asyncSupported = true)
 public class LoginServlet extends HttpServlet {
 
     private static final Logger logger = Logger.getLogger(LoginServlet.class.getName());
@@ -32,7 +37,10 @@ public class LoginServlet extends HttpServlet {
 
         // Check if user is already logged in
         HttpSession session = request.getSession(false);
-        if (session != null && session.getAttribute("user") != null) {
+        boolean loggedIn = SessionTokenService.isEnabled()
+                ? AuthTokens.resolve(request) != null
+                : session != null && session.getAttribute("user") != null;
+        if (loggedIn) {
             response.sendRedirect(request.getContextPath() + "/dashboard");
             return;
         }
@@ -71,51 +79,88 @@ public class LoginServlet extends HttpServlet {
                 return;
             }
 
-            // Authenticate user
-            User user = userService.authenticateUser(email.trim(), password);
+            // BCrypt runs on the hashing pool; this request thread is released meanwhile
+            String trimmedEmail = email.trim();
+            HashingRequest.run(request, () -> userService.authenticateUser(trimmedEmail, password),
+                    (asyncContext, user, error) -> completeLogin(asyncContext, user, error, email, rememberMe));
 
-            if (user != null) {
-                // Authentication successful
-                HttpSession session = request.getSession(true);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error during login process", e);
+            request.setAttribute("errorMessage", "An error occurred during login. Please try again.");
+            request.setAttribute("email", email);
+            request.getRequestDispatcher("/login.jsp").forward(request, response);
+        }
+    }
+
+    private void completeLogin(AsyncContext asyncContext, User user, Throwable error,
+                               String email, String rememberMe) throws IOException {
+        HttpServletRequest request = (HttpServletRequest) asyncContext.getRequest();
+        HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+
+        if (error != null) {
+            if (error instanceof RejectedExecutionException || error instanceof TimeoutException) {
+                logger.warning("Login not processed for " + email + ": " + error.getMessage());
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                request.setAttribute("errorMessage", "The server is busy. Please try again in a moment.");
+            } else {
+                logger.log(Level.SEVERE, "Error during login process", error);
+                request.setAttribute("errorMessage", "An error occurred during login. Please try again.");
+            }
+            request.setAttribute("email", email);
+            asyncContext.dispatch("/login.jsp");
+            return;
+        }
+
+        if (user != null) {
+            // Authentication successful
+            try {
+                AuthTokens.issue(request, response, user.getId(), "on".equals(rememberMe));
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Error issuing session token for: " + email, e);
+                request.setAttribute("errorMessage", "An error occurred during login. Please try again.");
+                request.setAttribute("email", email);
+                asyncContext.dispatch("/login.jsp");
+                return;
+            }
+
+            HttpSession session = request.getSession(true);
+            session.setAttribute("userId", user.getId());
+            // With tokens the filter rebuilds the user id from the token on every request,
+            // so the session carries nothing that could outlive a revoked token
+            if (!SessionTokenService.isEnabled()) {
                 session.setAttribute("user", user);
-                session.setAttribute("userId", user.getId());
                 session.setAttribute("username", user.getUsername());
                 session.setAttribute("userEmail", user.getEmail());
                 session.setAttribute("userBalance", user.getWalletBalance());
+            }
 
-                // Set session timeout (30 minutes)
-                session.setMaxInactiveInterval(30 * 60);
-
-                // Handle remember me functionality
-                if ("on".equals(rememberMe)) {
-                    session.setMaxInactiveInterval(7 * 24 * 60 * 60); // 7 days
-                }
+            // Set session timeout (30 minutes)
+            session.setMaxInactiveInterval(30 * 60);
 
-                logger.info("User logged in successfully: " + user.getEmail());
+            // Handle remember me functionality
+            if ("on".equals(rememberMe)) {
+                session.setMaxInactiveInterval(7 * 24 * 60 * 60); // 7 days
+            }
 
-                // Check for redirect URL in session
-                String redirectUrl = (String) session.getAttribute("redirectAfterLogin");
-                if (redirectUrl != null) {
-                    session.removeAttribute("redirectAfterLogin");
-                    response.sendRedirect(redirectUrl);
-                } else {
-                    response.sendRedirect(request.getContextPath() + "/dashboard");
-                }
+            logger.info("User logged in successfully: " + user.getEmail());
 
+            // Check for redirect URL in session
+            String redirectUrl = (String) session.getAttribute("redirectAfterLogin");
+            if (redirectUrl != null) {
+                session.removeAttribute("redirectAfterLogin");
+                response.sendRedirect(redirectUrl);
             } else {
-                // Authentication failed
-                request.setAttribute("errorMessage", "Invalid email or password");
-                request.setAttribute("email", email); // Preserve email for user convenience
-
-                logger.warning("Failed login attempt for email: " + email);
-                request.getRequestDispatcher("/login.jsp").forward(request, response);
+                response.sendRedirect(request.getContextPath() + "/dashboard");
             }
+            asyncContext.complete();
 
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error during login process", e);
-            request.setAttribute("errorMessage", "An error occurred during login. Please try again.");
-            request.setAttribute("email", email);
-            request.getRequestDispatcher("/login.jsp").forward(request, response);
+        } else {
+            // Authentication failed
+            request.setAttribute("errorMessage", "Invalid email or password");
+            request.setAttribute("email", email); // Preserve email for user convenience
+
+            logger.warning("Failed login attempt for email: " + email);
+            asyncContext.dispatch("/login.jsp");
         }
     }
-}
\ No newline at end of file
+}
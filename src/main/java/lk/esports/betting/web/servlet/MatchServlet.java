@@ -1,6 +1,7 @@
 package lk.esports.betting.web.servlet;
 
 import lk.esports.betting.ejb.local.MatchService;
+import lk.esports.betting.engine.MatchListingCache;
 import lk.esports.betting.ejb.local.BettingService;
 import lk.esports.betting.entity.Match;
 import lk.esports.betting.entity.Team;
@@ -136,7 +137,7 @@ public class MatchServlet extends HttpServlet {
             }
 
             String format = request.getParameter("format");
-            List<Match> matches = matchService.getUpcomingMatches();
+            List<Match> matches = MatchListingCache.getInstance().getUpcomingMatches();
 
             if ("json".equals(format)) {
                 sendJsonResponse(response, matches != null ? matches : List.of());
@@ -171,7 +172,7 @@ public class MatchServlet extends HttpServlet {
             }
 
             String format = request.getParameter("format");
-            List<Match> matches = matchService.getLiveMatches();
+            List<Match> matches = MatchListingCache.getInstance().getLiveMatches();
 
             if ("json".equals(format)) {
                 sendJsonResponse(response, matches != null ? matches : List.of());
@@ -206,7 +207,7 @@ public class MatchServlet extends HttpServlet {
             }
 
             String format = request.getParameter("format");
-            List<Match> matches = matchService.getCompletedMatches();
+            List<Match> matches = MatchListingCache.getInstance().getCompletedMatches();
 
             if ("json".equals(format)) {
                 sendJsonResponse(response, matches != null ? matches : List.of());
@@ -2,8 +2,11 @@ package lk.esports.betting.web.servlet;
 
 import lk.esports.betting.ejb.local.UserService;
 import lk.esports.betting.entity.User;
+import lk.esports.betting.security.SessionTokenService;
 import lk.esports.betting.utils.EJBServiceLocator;
+import lk.esports.betting.web.filter.AuthTokens;
 
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -13,11 +16,13 @@ import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
-@WebServlet("/register")
+@WebServlet(urlPatterns = "/register", asyncSupported = true)
 public class RegisterServlet extends HttpServlet {
 
     private static final Logger logger = Logger.getLogger(RegisterServlet.class.getName());
@@ -42,7 +47,10 @@ public class RegisterServlet extends HttpServlet {
 
         // Check if user is already logged in
         HttpSession session = request.getSession(false);
-        if (session != null && session.getAttribute("user") != null) {
+        boolean loggedIn = SessionTokenService.isEnabled()
+                ? AuthTokens.resolve(request) != null
+                : session != null && session.getAttribute("user") != null;
+        if (loggedIn) {
             response.sendRedirect(request.getContextPath() + "/dashboard");
             return;
         }
@@ -109,81 +117,11 @@ public class RegisterServlet extends HttpServlet {
                 return;
             }
 
-            // Register new user
-            User newUser = null;
-            try {
-                newUser = userService.registerUser(
-                        email.trim(),
-                        username.trim(),
-                        password,
-                        fullName.trim(),
-                        phone != null ? phone.trim() : null
-                );
-            } catch (IllegalArgumentException e) {
-                logger.log(Level.WARNING, "Registration validation error: " + e.getMessage());
-                request.setAttribute("errorMessage", e.getMessage());
-                preserveFormData(request, email, username, fullName, phone);
-                request.getRequestDispatcher("/register.jsp").forward(request, response);
-                return;
-            } catch (RuntimeException e) {
-                logger.log(Level.SEVERE, "Runtime error during registration", e);
-                String errorMsg = e.getMessage();
-                if (errorMsg != null && errorMsg.contains("email already exists")) {
-                    request.setAttribute("errorMessage", "This email address is already registered. Please use a different email or try logging in.");
-                } else if (errorMsg != null && errorMsg.contains("username already exists")) {
-                    request.setAttribute("errorMessage", "This username is already taken. Please choose a different username.");
-                } else {
-                    request.setAttribute("errorMessage", "Registration failed. Please try again.");
-                }
-                preserveFormData(request, email, username, fullName, phone);
-                request.getRequestDispatcher("/register.jsp").forward(request, response);
-                return;
-            } catch (Exception e) {
-                logger.log(Level.SEVERE, "Unexpected error during registration", e);
-                request.setAttribute("errorMessage", "Registration failed due to a system error. Please try again later.");
-                preserveFormData(request, email, username, fullName, phone);
-                request.getRequestDispatcher("/register.jsp").forward(request, response);
-                return;
-            }
-
-            if (newUser != null) {
-                // Registration successful - add welcome bonus
-                try {
-                    userService.addFunds(newUser.getId(), new BigDecimal("100.00"), "Welcome bonus");
-
-                    // Refresh user to get updated balance
-                    newUser = userService.findUserById(newUser.getId());
-
-                    logger.info("Welcome bonus added for new user: " + newUser.getUsername());
-                } catch (Exception e) {
-                    logger.log(Level.WARNING, "Failed to add welcome bonus for user: " + newUser.getId(), e);
-                    // Continue anyway - registration was successful
-                }
-
-                // Auto-login the user
-                HttpSession session = request.getSession(true);
-                session.setAttribute("user", newUser);
-                session.setAttribute("userId", newUser.getId());
-                session.setAttribute("username", newUser.getUsername());
-                session.setAttribute("userEmail", newUser.getEmail());
-                session.setAttribute("userBalance", newUser.getWalletBalance());
-                session.setMaxInactiveInterval(30 * 60); // 30 minutes
-
-                logger.info("New user registered and logged in: " + newUser.getEmail());
-
-                // Set success message for dashboard
-                session.setAttribute("successMessage",
-                        "Welcome to E-Sports Betting! Your account has been created successfully" +
-                                (newUser.getWalletBalance().compareTo(BigDecimal.ZERO) > 0 ?
-                                        " and you've received a $100 welcome bonus." : "."));
-
-                response.sendRedirect(request.getContextPath() + "/dashboard");
-
-            } else {
-                request.setAttribute("errorMessage", "Registration failed. Please try again.");
-                preserveFormData(request, email, username, fullName, phone);
-                request.getRequestDispatcher("/register.jsp").forward(request, response);
-            }
+            // Hashing the password is BCrypt work, so registration runs on the hashing pool
+            HashingRequest.run(request,
+                    () -> registerWithWelcomeBonus(userService, email, username, password, fullName, phone),
+                    (asyncContext, newUser, error) ->
+                            completeRegistration(asyncContext, newUser, error, email, username, fullName, phone));
 
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Unexpected error in registration servlet", e);
@@ -257,6 +195,106 @@ public class RegisterServlet extends HttpServlet {
         return null; // No validation errors
     }
 
+    private User registerWithWelcomeBonus(UserService userService, String email, String username,
+                                          String password, String fullName, String phone) {
+        User newUser = userService.registerUser(
+                email.trim(),
+                username.trim(),
+                password,
+                fullName.trim(),
+                phone != null ? phone.trim() : null
+        );
+
+        if (newUser != null) {
+            // Registration successful - add welcome bonus
+            try {
+                userService.addFunds(newUser.getId(), new BigDecimal("100.00"), "Welcome bonus");
+
+                // Refresh user to get updated balance
+                newUser = userService.findUserById(newUser.getId());
+
+                logger.info("Welcome bonus added for new user: " + newUser.getUsername());
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to add welcome bonus for user: " + newUser.getId(), e);
+                // Continue anyway - registration was successful
+            }
+        }
+        return newUser;
+    }
+
+    private void completeRegistration(AsyncContext asyncContext, User newUser, Throwable error, String email,
+                                      String username, String fullName, String phone) throws IOException {
+        HttpServletRequest request = (HttpServletRequest) asyncContext.getRequest();
+        HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+
+        if (error != null) {
+            if (error instanceof RejectedExecutionException || error instanceof TimeoutException) {
+                logger.warning("Registration not processed for " + email + ": " + error.getMessage());
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                request.setAttribute("errorMessage", "The server is busy. Please try again in a moment.");
+            } else if (error instanceof IllegalArgumentException) {
+                logger.log(Level.WARNING, "Registration validation error: " + error.getMessage());
+                request.setAttribute("errorMessage", error.getMessage());
+            } else if (error instanceof RuntimeException) {
+                logger.log(Level.SEVERE, "Runtime error during registration", error);
+                String errorMsg = error.getMessage();
+                if (errorMsg != null && errorMsg.contains("email already exists")) {
+                    request.setAttribute("errorMessage", "This email address is already registered. Please use a different email or try logging in.");
+                } else if (errorMsg != null && errorMsg.contains("username already exists")) {
+                    request.setAttribute("errorMessage", "This username is already taken. Please choose a different username.");
+                } else {
+                    request.setAttribute("errorMessage", "Registration failed. Please try again.");
+                }
+            } else {
+                logger.log(Level.SEVERE, "Unexpected error during registration", error);
+                request.setAttribute("errorMessage", "Registration failed due to a system error. Please try again later.");
+            }
+            preserveFormData(request, email, username, fullName, phone);
+            asyncContext.dispatch("/register.jsp");
+            return;
+        }
+
+        if (newUser != null) {
+            // Auto-login the user
+            try {
+                AuthTokens.issue(request, response, newUser.getId(), false);
+            } catch (Exception e) {
+                // The account exists; the user can still log in normally
+                logger.log(Level.SEVERE, "Error issuing session token for new user: " + newUser.getEmail(), e);
+                response.sendRedirect(request.getContextPath() + "/login");
+                asyncContext.complete();
+                return;
+            }
+
+            HttpSession session = request.getSession(true);
+            session.setAttribute("userId", newUser.getId());
+            // Token logins keep only the id, as in LoginServlet
+            if (!SessionTokenService.isEnabled()) {
+                session.setAttribute("user", newUser);
+                session.setAttribute("username", newUser.getUsername());
+                session.setAttribute("userEmail", newUser.getEmail());
+                session.setAttribute("userBalance", newUser.getWalletBalance());
+            }
+            session.setMaxInactiveInterval(30 * 60); // 30 minutes
+
+            logger.info("New user registered and logged in: " + newUser.getEmail());
+
+            // Set success message for dashboard
+            session.setAttribute("successMessage",
+                    "Welcome to E-Sports Betting! Your account has been created successfully" +
+                            (newUser.getWalletBalance().compareTo(BigDecimal.ZERO) > 0 ?
+                                    " and you've received a $100 welcome bonus." : "."));
+
+            response.sendRedirect(request.getContextPath() + "/dashboard");
+            asyncContext.complete();
+
+        } else {
+            request.setAttribute("errorMessage", "Registration failed. Please try again.");
+            preserveFormData(request, email, username, fullName, phone);
+            asyncContext.dispatch("/register.jsp");
+        }
+    }
+
     private void preserveFormData(HttpServletRequest request, String email, String username,
                                   String fullName, String phone) {
         request.setAttribute("email", email);
@@ -0,0 +1,159 @@
+package lk.esports.betting.web.servlet;
+
+import lk.esports.betting.ejb.local.UserService;
+import lk.esports.betting.entity.Transaction;
+import lk.esports.betting.utils.CursorPage;
+import lk.esports.betting.utils.EJBServiceLocator;
+import lk.esports.betting.wallet.TransactionExporter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.logging.Level;
+
+/**
+ * Wallet statement endpoints: paginated transaction history and a streaming export
+ */
+@WebServlet("/wallet/*")
+public class WalletServlet extends HttpServlet {
+
+    private static final Logger logger = Logger.getLogger(WalletServlet.class.getName());
+
+    private final Gson gson = new GsonBuilder()
+            .serializeNulls()
+            .create();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        HttpSession session = request.getSession(false);
+        if (session == null || session.getAttribute("userId") == null) {
+            sendJsonError(response, HttpServletResponse.SC_UNAUTHORIZED, "Authentication required");
+            return;
+        }
+
+        Long userId = (Long) session.getAttribute("userId");
+        String pathInfo = request.getPathInfo();
+
+        try {
+            if ("/transactions".equals(pathInfo)) {
+                handleGetTransactions(request, response, userId);
+            } else if ("/transactions/export".equals(pathInfo)) {
+                handleExportTransactions(request, response, userId);
+            } else {
+                sendJsonError(response, HttpServletResponse.SC_NOT_FOUND, "Endpoint not found");
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in WalletServlet GET", e);
+            if (!response.isCommitted()) {
+                sendJsonError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal server error");
+            }
+        }
+    }
+
+    private void handleGetTransactions(HttpServletRequest request, HttpServletResponse response, Long userId)
+            throws IOException {
+
+        UserService userService = EJBServiceLocator.getUserService();
+        if (userService == null) {
+            sendJsonError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "User service unavailable");
+            return;
+        }
+
+        CursorPage<Transaction> page;
+        try {
+            page = userService.getUserTransactions(userId, request.getParameter("cursor"),
+                    parseLimit(request.getParameter("limit")));
+        } catch (IllegalArgumentException e) {
+            sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid cursor");
+            return;
+        }
+
+        List<Map<String, Object>> transactions = new ArrayList<>(page.getSize());
+        for (Transaction transaction : page.getItems()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", transaction.getId());
+            item.put("type", transaction.getTransactionType());
+            item.put("amount", transaction.getAmount());
+            item.put("description", transaction.getDescription());
+            item.put("referenceId", transaction.getReferenceId());
+            item.put("status", transaction.getStatus());
+            item.put("createdAt", transaction.getCreatedAt() != null ? transaction.getCreatedAt().toString() : null);
+            transactions.add(item);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("transactions", transactions);
+        result.put("nextCursor", page.getNextCursor());
+        result.put("hasMore", page.isHasMore());
+
+        sendJsonResponse(response, result);
+    }
+
+    private void handleExportTransactions(HttpServletRequest request, HttpServletResponse response, Long userId)
+            throws IOException {
+
+        TransactionExporter.Format format = TransactionExporter.Format.fromParameter(request.getParameter("format"));
+
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"transactions-" + userId + "-" +
+                LocalDate.now() + "." + format.getExtension() + "\"");
+        response.setHeader("Cache-Control", "no-store");
+
+        long rows = TransactionExporter.export(userId, format, response.getWriter());
+        logger.info("Exported " + rows + " transactions for user: " + userId);
+    }
+
+    private int parseLimit(String limit) {
+        try {
+            return limit != null ? Integer.parseInt(limit) : CursorPage.DEFAULT_LIMIT;
+        } catch (NumberFormatException e) {
+            return CursorPage.DEFAULT_LIMIT;
+        }
+    }
+
+    private void sendJsonResponse(HttpServletResponse response, Object data) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        try (PrintWriter out = response.getWriter()) {
+            out.print(gson.toJson(data));
+            out.flush();
+        }
+    }
+
+    private void sendJsonError(HttpServletResponse response, int statusCode, String message) throws IOException {
+        response.setStatus(statusCode);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("error", message);
+        error.put("statusCode", statusCode);
+
+        try (PrintWriter out = response.getWriter()) {
+            out.print(gson.toJson(error));
+            out.flush();
+        }
+    }
+}
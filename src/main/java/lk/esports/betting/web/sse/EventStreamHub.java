@@ -0,0 +1,301 @@
+package lk.esports.betting.web.sse;
+
+import lk.esports.betting.engine.MatchEventFeed;
+import lk.esports.betting.engine.UserEventFeed;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server-Sent Events fan-out for clients that cannot open a WebSocket.
+ *
+ * Each stream is an AsyncContext whose request thread has already returned to the
+ * container. Events from MatchEventFeed and UserEventFeed are framed once and queued
+ * per connection; a single writer thread drains the queues with non-blocking
+ * ServletOutputStream writes, resuming a connection from onWritePossible() when its
+ * socket buffer frees up. A connection whose queue grows past MAX_QUEUED frames is
+ * closed rather than buffered without bound; the browser reconnects and receives a
+ * fresh snapshot.
+ */
+public class EventStreamHub {
+
+    private static final Logger logger = Logger.getLogger(EventStreamHub.class.getName());
+
+    private static final long TIMEOUT_MILLIS = Long.getLong("esports.sse.timeoutMillis", 30 * 60 * 1000L);
+    private static final long HEARTBEAT_MILLIS = Long.getLong("esports.sse.heartbeatMillis", 15000L);
+    private static final int MAX_QUEUED = Integer.getInteger("esports.sse.maxQueued", 1000);
+
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RETRY = "retry: 5000\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final EventStreamHub INSTANCE = new EventStreamHub();
+
+    private final ScheduledExecutorService writer;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Connection>> connectionsByUser = new ConcurrentHashMap<>();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder framesWritten = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    private EventStreamHub() {
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+        MatchEventFeed.getInstance().addListener(this::onMatchEvent);
+        UserEventFeed.getInstance().addListener(this::onUserEvent);
+        MetricsRegistry.register("eventStreams", this::snapshot);
+    }
+
+    public static EventStreamHub getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Take over a started async request as an event stream.
+     * matchId limits match events to one match (null for every match), userId
+     * (null for anonymous clients) subscribes to that user's bet notifications, and
+     * the initial events are sent before anything published afterwards.
+     */
+    public void open(AsyncContext asyncContext, Long userId, Long matchId,
+                     List<MatchEventFeed.MatchEvent> initialEvents) throws IOException {
+        asyncContext.setTimeout(TIMEOUT_MILLIS);
+        ServletOutputStream out = asyncContext.getResponse().getOutputStream();
+        Connection connection = new Connection(asyncContext, out, userId, matchId);
+        asyncContext.addListener(connection);
+
+        connection.enqueue(RETRY);
+        for (MatchEventFeed.MatchEvent event : initialEvents) {
+            connection.enqueue(matchFrame(event));
+        }
+
+        connections.add(connection);
+        if (userId != null) {
+            connectionsByUser.compute(userId, (id, userConnections) -> {
+                Set<Connection> joined = userConnections != null ? userConnections : ConcurrentHashMap.newKeySet();
+                joined.add(connection);
+                return joined;
+            });
+            UserEventFeed.getInstance().watch(userId);
+        }
+        opened.increment();
+
+        // The container calls onWritePossible() once the listener is set, which starts the first drain
+        out.setWriteListener(connection);
+    }
+
+    private void onMatchEvent(MatchEventFeed.MatchEvent event) {
+        if (connections.isEmpty()) {
+            return;
+        }
+        byte[] frame = matchFrame(event);
+        for (Connection connection : connections) {
+            if (connection.matchId == null || connection.matchId.equals(event.getMatchId())) {
+                connection.enqueue(frame);
+            }
+        }
+    }
+
+    private void onUserEvent(Long userId, String json) {
+        Set<Connection> userConnections = connectionsByUser.get(userId);
+        if (userConnections == null) {
+            return;
+        }
+        byte[] frame = ("event: bet\ndata: " + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+        for (Connection connection : userConnections) {
+            connection.enqueue(frame);
+        }
+    }
+
+    private static byte[] matchFrame(MatchEventFeed.MatchEvent event) {
+        return ("id: " + event.getSequence() + "\nevent: match\ndata: " + event.getJson() + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void heartbeat() {
+        for (Connection connection : connections) {
+            connection.enqueue(HEARTBEAT);
+        }
+    }
+
+    private void remove(Connection connection) {
+        connections.remove(connection);
+        if (connection.userId != null) {
+            connectionsByUser.computeIfPresent(connection.userId, (id, userConnections) -> {
+                userConnections.remove(connection);
+                return userConnections.isEmpty() ? null : userConnections;
+            });
+            UserEventFeed.getInstance().unwatch(connection.userId);
+        }
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public void shutdown() {
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("connections", connections.size());
+        snapshot.put("userStreams", connectionsByUser.size());
+        snapshot.put("opened", opened.sum());
+        snapshot.put("framesWritten", framesWritten.sum());
+        snapshot.put("overflowed", overflowed.sum());
+        return snapshot;
+    }
+
+    /**
+     * One open event stream. Frames are only ever written from the writer thread.
+     */
+    private final class Connection implements WriteListener, AsyncListener {
+        private final AsyncContext asyncContext;
+        private final ServletOutputStream out;
+        private final Long userId;
+        private final Long matchId;
+        private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean writable;
+
+        private Connection(AsyncContext asyncContext, ServletOutputStream out, Long userId, Long matchId) {
+            this.asyncContext = asyncContext;
+            this.out = out;
+            this.userId = userId;
+            this.matchId = matchId;
+        }
+
+        private void enqueue(byte[] frame) {
+            if (closed.get()) {
+                return;
+            }
+            if (queued.incrementAndGet() > MAX_QUEUED) {
+                overflowed.increment();
+                logger.fine("Closing event stream that fell " + MAX_QUEUED + " frames behind");
+                close();
+                return;
+            }
+            queue.add(frame);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (writable && drainScheduled.compareAndSet(false, true)) {
+                try {
+                    writer.execute(this::drain);
+                } catch (Exception e) {
+                    drainScheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            drainScheduled.set(false);
+            if (closed.get()) {
+                return;
+            }
+            try {
+                boolean wrote = false;
+                byte[] frame;
+                while (out.isReady() && (frame = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    out.write(frame);
+                    framesWritten.increment();
+                    wrote = true;
+                }
+                if (wrote && out.isReady()) {
+                    out.flush();
+                }
+                // When isReady() returned false the container calls onWritePossible() later
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Event stream write failed", e);
+                close();
+            }
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            queue.clear();
+            remove(this);
+            try {
+                asyncContext.complete();
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Error completing event stream", e);
+            }
+        }
+
+        @Override
+        public void onWritePossible() {
+            writable = true;
+            scheduleDrain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            logger.log(Level.FINE, "Event stream error", throwable);
+            close();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (closed.compareAndSet(false, true)) {
+                queue.clear();
+                remove(this);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package lk.esports.betting.web.websocket;
+
+import lk.esports.betting.engine.MatchEventFeed;
+import lk.esports.betting.utils.MetricsRegistry;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes odds, pool totals and status changes of one match (or of every match with
+ * /ws/matches/all) to the browser. Clients receive the current state on connect and
+ * then every MatchEventFeed event for the match.
+ *
+ * Sends are asynchronous. While a send to a slow client is still in flight, newer
+ * events replace older undelivered ones for the same match, so a client always
+ * converges on the latest state and never holds more than one message per match.
+ */
+@ServerEndpoint("/ws/matches/{matchId}")
+public class MatchUpdatesEndpoint {
+
+    private static final Logger logger = Logger.getLogger(MatchUpdatesEndpoint.class.getName());
+
+    private static final Long ALL_MATCHES = 0L;
+
+    private static final Map<Long, Set<Client>> subscribers = new ConcurrentHashMap<>();
+    private static final LongAdder messagesSent = new LongAdder();
+    private static final LongAdder messagesCoalesced = new LongAdder();
+
+    static {
+        MatchEventFeed.getInstance().addListener(MatchUpdatesEndpoint::broadcast);
+        MetricsRegistry.register("matchWebSockets", MatchUpdatesEndpoint::snapshot);
+    }
+
+    private Client client;
+    private Long subscription;
+
+    @OnOpen
+    public void onOpen(Session session, @PathParam("matchId") String matchId) throws IOException {
+        try {
+            subscription = "all".equals(matchId) ? ALL_MATCHES : Long.valueOf(matchId);
+        } catch (NumberFormatException e) {
+            session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "Invalid match id"));
+            return;
+        }
+
+        client = new Client(session);
+        // Adds and removes run under the map's lock for the match, so a set is never
+        // dropped while a client is joining it
+        subscribers.compute(subscription, (id, clients) -> {
+            Set<Client> joined = clients != null ? clients : ConcurrentHashMap.newKeySet();
+            joined.add(client);
+            return joined;
+        });
+
+        if (!ALL_MATCHES.equals(subscription)) {
+            MatchEventFeed.MatchEvent current = MatchEventFeed.getInstance().getSnapshot(subscription);
+            if (current == null) {
+                session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "Match not found"));
+                return;
+            }
+            client.send(current);
+        }
+    }
+
+    @OnClose
+    public void onClose(Session session) {
+        unsubscribe();
+    }
+
+    @OnError
+    public void onError(Session session, Throwable error) {
+        logger.log(Level.FINE, "WebSocket error on session " + session.getId(), error);
+        unsubscribe();
+    }
+
+    private void unsubscribe() {
+        if (client == null) {
+            return;
+        }
+        subscribers.computeIfPresent(subscription, (id, clients) -> {
+            clients.remove(client);
+            return clients.isEmpty() ? null : clients;
+        });
+    }
+
+    private static void broadcast(MatchEventFeed.MatchEvent event) {
+        sendAll(subscribers.get(event.getMatchId()), event);
+        sendAll(subscribers.get(ALL_MATCHES), event);
+    }
+
+    private static void sendAll(Set<Client> clients, MatchEventFeed.MatchEvent event) {
+        if (clients == null) {
+            return;
+        }
+        for (Client client : clients) {
+            client.send(event);
+        }
+    }
+
+    public static int getConnectionCount() {
+        int count = 0;
+        for (Set<Client> clients : subscribers.values()) {
+            count += clients.size();
+        }
+        return count;
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("connections", getConnectionCount());
+        snapshot.put("subscribedMatches", subscribers.size());
+        snapshot.put("messagesSent", messagesSent.sum());
+        snapshot.put("messagesCoalesced", messagesCoalesced.sum());
+        return snapshot;
+    }
+
+    /**
+     * One connected browser with at most one in-flight send
+     */
+    private static final class Client {
+        private final Session session;
+        private final Map<Long, String> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private Client(Session session) {
+            this.session = session;
+        }
+
+        private void send(MatchEventFeed.MatchEvent event) {
+            if (pending.put(event.getMatchId(), event.getJson()) != null) {
+                messagesCoalesced.increment();
+            }
+            drain();
+        }
+
+        private void drain() {
+            while (!pending.isEmpty() && sending.compareAndSet(false, true)) {
+                Long matchId = pending.keySet().iterator().next();
+                String json = pending.remove(matchId);
+                if (json == null || !session.isOpen()) {
+                    sending.set(false);
+                    if (!session.isOpen()) {
+                        pending.clear();
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    session.getAsyncRemote().sendText(json, result -> {
+                        sending.set(false);
+                        if (result.isOK()) {
+                            messagesSent.increment();
+                            drain();
+                        } else {
+                            pending.clear();
+                        }
+                    });
+                    return;
+                } catch (Exception e) {
+                    sending.set(false);
+                    pending.clear();
+                    logger.log(Level.FINE, "WebSocket send failed on session " + session.getId(), e);
+                    return;
+                }
+            }
+        }
+    }
+}
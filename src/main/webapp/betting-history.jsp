@@ -227,14 +227,25 @@
                         </div>
 
                         <!-- Pagination -->
-                        <c:if test="${bets.size() >= 20}">
+                        <c:if test="${not empty nextCursor || !firstPage}">
+                            <c:url var="newestPageUrl" value="/bets/history">
+                                <c:if test="${not empty filterStatus}"><c:param name="status" value="${filterStatus}"/></c:if>
+                            </c:url>
+                            <c:url var="olderPageUrl" value="/bets/history">
+                                <c:if test="${not empty filterStatus}"><c:param name="status" value="${filterStatus}"/></c:if>
+                                <c:param name="cursor" value="${nextCursor}"/>
+                            </c:url>
                             <div class="d-flex justify-content-between align-items-center mt-4">
                                 <div style="color: var(--text-secondary);">
                                     Showing ${bets.size()} bets
                                 </div>
                                 <div class="d-flex" style="gap: 0.5rem;">
-                                    <button class="btn btn-sm btn-outline" id="prevPage">Previous</button>
-                                    <button class="btn btn-sm btn-outline" id="nextPage">Next</button>
+                                    <c:if test="${!firstPage}">
+                                        <a class="btn btn-sm btn-outline" href="${newestPageUrl}">Newest</a>
+                                    </c:if>
+                                    <c:if test="${not empty nextCursor}">
+                                        <a class="btn btn-sm btn-outline" href="${olderPageUrl}">Older</a>
+                                    </c:if>
                                 </div>
                             </div>
                         </c:if>
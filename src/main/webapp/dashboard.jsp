@@ -336,7 +336,7 @@
                         <div class="card-header">
                             <h4 style="margin: 0;">
                                 Pending Bets
-                                <span class="badge badge-warning">${pendingBets.size()}</span>
+                                <span class="badge badge-warning">${pendingBets.size()}${morePendingBets ? '+' : ''}</span>
                             </h4>
                         </div>
                         <div class="card-body">
@@ -360,6 +360,11 @@
                                     </div>
                                 </div>
                             </c:forEach>
+                            <c:if test="${morePendingBets}">
+                                <a href="${pageContext.request.contextPath}/bets/history?status=pending" class="btn btn-sm btn-outline">
+                                    View All Pending
+                                </a>
+                            </c:if>
                         </div>
                     </div>
                 </c:if>
@@ -2,6 +2,7 @@
 
 // Global variables
 let userBalance = 0;
+let balanceVersion = null;
 let selectedMatch = null;
 let selectedTeam = null;
 
@@ -21,6 +22,7 @@ function initializeApp() {
         initializeBetting();
         initializeModals();
         initializeCountdowns();
+        initializeBalancePolling();
 
         console.log('E-Sports Betting Platform initialized successfully');
     } catch (error) {
@@ -297,6 +299,43 @@ function setQuickBetAmount(e) {
 }
 
 // Place bet
+// The idempotency key stays with the bet form until the server gives a definite
+// answer, so retries and double clicks can never place the same bet twice.
+let pendingBetKey = null;
+const BET_RETRY_DELAYS = [500, 1000, 2000];
+
+function newIdempotencyKey() {
+    if (window.crypto && crypto.randomUUID) {
+        return crypto.randomUUID();
+    }
+    return Date.now().toString(36) + '-' + Math.random().toString(36).slice(2, 12);
+}
+
+async function postBet(params, key) {
+    for (let attempt = 0; ; attempt++) {
+        try {
+            const response = await fetch('/ESportsBetting/bets/place', {
+                method: 'POST',
+                headers: {
+                    'Content-Type': 'application/x-www-form-urlencoded',
+                    'Idempotency-Key': key
+                },
+                body: new URLSearchParams(params)
+            });
+            // 409: the first attempt is still in flight; 5xx: unknown outcome. Both are safe to repeat.
+            const retryable = response.status === 409 || response.status >= 500;
+            if (!retryable || attempt >= BET_RETRY_DELAYS.length) {
+                return response;
+            }
+        } catch (error) {
+            if (attempt >= BET_RETRY_DELAYS.length) {
+                throw error;
+            }
+        }
+        await new Promise(resolve => setTimeout(resolve, BET_RETRY_DELAYS[attempt]));
+    }
+}
+
 async function placeBet(e) {
     e.preventDefault();
 
@@ -311,21 +350,28 @@ async function placeBet(e) {
     }
 
     setButtonLoading(button, true);
+    // A key belongs to one exact bet; changing team or amount makes it a new bet
+    const betIdentity = `${selectedMatch}:${selectedTeam}:${betAmount}`;
+    if (!pendingBetKey || pendingBetKey.bet !== betIdentity) {
+        pendingBetKey = { bet: betIdentity, key: newIdempotencyKey() };
+    }
+
+    // The odds shown when the bet was placed; the server rejects the bet if they have dropped
+    const selectedTeamBtn = matchCard.querySelector('.team-select-btn.selected');
+    const params = {
+        matchId: selectedMatch,
+        teamId: selectedTeam,
+        amount: betAmount
+    };
+    if (selectedTeamBtn && selectedTeamBtn.dataset.odds) {
+        params.acceptedOdds = selectedTeamBtn.dataset.odds;
+    }
 
     try {
-        const response = await fetch('/ESportsBetting/bets/place', {
-            method: 'POST',
-            headers: {
-                'Content-Type': 'application/x-www-form-urlencoded',
-            },
-            body: new URLSearchParams({
-                matchId: selectedMatch,
-                teamId: selectedTeam,
-                amount: betAmount
-            })
-        });
+        const response = await postBet(params, pendingBetKey.key);
 
         const result = await response.json();
+        pendingBetKey = null;
 
         if (result.success) {
             showAlert(`Bet placed successfully! Potential winnings: ${result.potentialWinnings}`, 'success');
@@ -344,6 +390,7 @@ async function placeBet(e) {
         }
 
     } catch (error) {
+        // Keep the key: trying again must not place a second bet
         console.error('Bet placement error:', error);
         showAlert('An error occurred while placing the bet', 'danger');
     } finally {
@@ -368,10 +415,11 @@ function resetBettingForm(matchCard) {
     selectedTeam = null;
 }
 
-// Update user balance
+// Update user balance; the server answers changed=false while our version is current
 async function updateUserBalance() {
     try {
-        const response = await fetch('/ESportsBetting/api/user/balance');
+        const since = balanceVersion !== null ? `?since=${balanceVersion}` : '';
+        const response = await fetch(`/ESportsBetting/api/user/balance${since}`);
         if (!response.ok) {
             throw new Error('Failed to fetch balance');
         }
@@ -379,6 +427,10 @@ async function updateUserBalance() {
         const data = await response.json();
 
         if (data.success) {
+            balanceVersion = data.version;
+            if (!data.changed) {
+                return;
+            }
             userBalance = data.balance;
             const balanceDisplays = document.querySelectorAll('.user-balance');
             balanceDisplays.forEach(display => {
@@ -418,18 +470,127 @@ function updateMatchCard(match, bettingStats) {
     const team2OddsDisplays = matchCard.querySelectorAll('[data-team-id="' + match.team2.id + '"]');
 
     team1OddsDisplays.forEach(display => {
+        // Team buttons carry the odds a placed bet accepts
+        if (display.dataset.odds !== undefined) {
+            display.dataset.odds = match.team1Odds;
+        }
         if (display.textContent !== match.team1.teamName) {
             display.textContent = match.team1Odds;
         }
     });
 
     team2OddsDisplays.forEach(display => {
+        // Team buttons carry the odds a placed bet accepts
+        if (display.dataset.odds !== undefined) {
+            display.dataset.odds = match.team2Odds;
+        }
         if (display.textContent !== match.team2.teamName) {
             display.textContent = match.team2Odds;
         }
     });
 }
 
+// Live match updates: WebSocket push, falling back to polling when unavailable
+const MATCH_POLL_INTERVAL = 30000;
+const matchWatchers = {};
+
+function watchMatch(matchId) {
+    if (matchWatchers[matchId]) return;
+
+    const watcher = { socket: null, source: null, pollTimer: null, retries: 0 };
+    matchWatchers[matchId] = watcher;
+
+    const startPolling = () => {
+        if (!watcher.pollTimer) {
+            watcher.pollTimer = setInterval(() => refreshMatchData(matchId), MATCH_POLL_INTERVAL);
+        }
+    };
+
+    const stopPolling = () => {
+        if (watcher.pollTimer) {
+            clearInterval(watcher.pollTimer);
+            watcher.pollTimer = null;
+        }
+    };
+
+    // Server-Sent Events for browsers or proxies that cannot hold a WebSocket open
+    const connectEventStream = () => {
+        if (!('EventSource' in window)) {
+            startPolling();
+            return;
+        }
+
+        const source = new EventSource(`/ESportsBetting/api/stream?matchId=${matchId}`);
+        watcher.source = source;
+
+        source.onopen = () => {
+            // A new stream starts with the current snapshot; the server may have restarted its sequence
+            delete appliedSequences[matchId];
+            stopPolling();
+        };
+        source.addEventListener('match', (message) => {
+            try {
+                applyMatchEvent(JSON.parse(message.data));
+            } catch (error) {
+                console.error('Error handling match update:', error);
+            }
+        });
+        // EventSource reconnects by itself; poll until it does
+        source.onerror = () => startPolling();
+    };
+
+    const connect = () => {
+        if (!('WebSocket' in window) || watcher.retries >= 3) {
+            connectEventStream();
+            return;
+        }
+
+        const protocol = window.location.protocol === 'https:' ? 'wss://' : 'ws://';
+        const socket = new WebSocket(`${protocol}${window.location.host}/ESportsBetting/ws/matches/${matchId}`);
+        watcher.socket = socket;
+
+        socket.onopen = () => {
+            // A new socket starts with the current snapshot; the server may have restarted its sequence
+            delete appliedSequences[matchId];
+            watcher.retries = 0;
+            stopPolling();
+        };
+
+        socket.onmessage = (message) => {
+            try {
+                applyMatchEvent(JSON.parse(message.data));
+            } catch (error) {
+                console.error('Error handling match update:', error);
+            }
+        };
+
+        socket.onclose = () => {
+            watcher.socket = null;
+            startPolling();
+            // Back off up to a minute before trying the socket again
+            const delay = Math.min(60000, 2000 * Math.pow(2, watcher.retries++));
+            setTimeout(connect, delay);
+        };
+    };
+
+    connect();
+}
+
+// Highest event sequence applied per match; a late or repeated event is dropped
+const appliedSequences = {};
+
+function applyMatchEvent(event) {
+    if (typeof event.sequence === 'number') {
+        const last = appliedSequences[event.id];
+        if (last !== undefined && event.sequence <= last) {
+            return;
+        }
+        appliedSequences[event.id] = event.sequence;
+    }
+    updateMatchCard(event, null);
+    document.dispatchEvent(new CustomEvent('matchupdate', { detail: event }));
+}
+
 // Handle wallet operations
 async function handleAddFunds(e) {
     e.preventDefault();
@@ -540,6 +701,20 @@ function closeModal(modalId) {
     }
 }
 
+// Pick up balance changes made elsewhere (settled bets, other tabs)
+const BALANCE_POLL_INTERVAL = 15000;
+
+function initializeBalancePolling() {
+    if (!document.querySelector('.user-balance')) {
+        return;
+    }
+    setInterval(() => {
+        if (!document.hidden) {
+            updateUserBalance();
+        }
+    }, BALANCE_POLL_INTERVAL);
+}
+
 // Countdown timers
 function initializeCountdowns() {
     updateCountdowns();
@@ -668,7 +843,7 @@ function cancelBet(betId) {
         .then(response => response.json())
         .then(data => {
             if (data.success) {
-                showAlert('Bet cancelled successfully! Refund:  + data.refundAmount, 'success');
+                showAlert('Bet cancelled successfully! Refund: $' + data.refundAmount, 'success');
                 location.reload();
             } else {
                 showAlert(data.error || 'Failed to cancel bet', 'danger');
@@ -689,6 +864,7 @@ window.ESportsBetting = {
     showAlert,
     updateUserBalance,
     refreshMatchData,
+    watchMatch,
     cancelBet
 };
 
@@ -474,10 +474,8 @@
             });
         });
 
-        // Auto-refresh odds every 30 seconds
-        setInterval(function() {
-            refreshMatchData(${match.id});
-        }, 30000);
+        // Live odds, pool and status updates (polls only if WebSockets are unavailable)
+        watchMatch(${match.id});
     </script>
 </body>
 </html>
\ No newline at end of file
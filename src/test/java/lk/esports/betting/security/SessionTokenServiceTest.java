@@ -0,0 +1,158 @@
+package lk.esports.betting.security;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Token signing, parsing and the deny-list, without a database. The service is a
+ * singleton, so every test uses token ids of its own.
+ */
+public class SessionTokenServiceTest {
+
+    private final SessionTokenService service = SessionTokenService.getInstance();
+
+    @Test
+    public void signedTokensVerify() {
+        String tokenId = newTokenId();
+        long expiresAt = now() + 600;
+
+        SessionTokenService.Claims claims = service.verify(sign(42L, expiresAt, tokenId, false));
+        assertNotNull(claims);
+        assertEquals(Long.valueOf(42L), claims.getUserId());
+        assertEquals(expiresAt, claims.getExpiresAt());
+        assertEquals(tokenId, claims.getTokenId());
+        assertFalse(claims.isRememberMe());
+
+        SessionTokenService.Claims remembered = service.verify(sign(42L, expiresAt, newTokenId(), true));
+        assertNotNull(remembered);
+        assertTrue(remembered.isRememberMe());
+    }
+
+    @Test
+    public void tamperedTokensAreRejected() {
+        String token = sign(42L, now() + 600, newTokenId(), false);
+        String[] parts = token.split("\\.");
+        String signature = parts[4];
+        char last = signature.charAt(signature.length() - 1);
+
+        String[] tampered = {
+                join("43", parts[1], parts[2], parts[3], signature),
+                join(parts[0], String.valueOf(now() + 6000), parts[2], parts[3], signature),
+                join(parts[0], parts[1], newTokenId(), parts[3], signature),
+                join(parts[0], parts[1], parts[2], "r", signature),
+                join(parts[0], parts[1], parts[2], parts[3], signature.substring(0, signature.length() - 1)
+                        + (last == 'A' ? 'B' : 'A')),
+                join(parts[0], parts[1], parts[2], parts[3], ""),
+        };
+        for (String candidate : tampered) {
+            assertNull(candidate, service.verify(candidate));
+        }
+    }
+
+    @Test
+    public void expiredTokensAreRejected() {
+        assertNull(service.verify(sign(42L, now() - 1, newTokenId(), false)));
+        assertNull(service.verify(sign(42L, now(), newTokenId(), true)));
+    }
+
+    @Test
+    public void wrongFieldCountsAreRejected() {
+        String token = sign(42L, now() + 600, newTokenId(), false);
+        String[] parts = token.split("\\.");
+        String payload = join(parts[0], parts[1], parts[2], parts[3]);
+
+        String[] malformed = {
+                null,
+                "",
+                ".....",
+                join(parts[0], parts[1], parts[2], parts[4]),
+                token + ".",
+                token + "." + parts[4],
+                payload + "." + parts[4] + "." + parts[4],
+                "." + token,
+        };
+        for (String candidate : malformed) {
+            assertNull(String.valueOf(candidate), service.verify(candidate));
+        }
+    }
+
+    @Test
+    public void wellSignedGarbageIsRejected() {
+        String[] payloads = {
+                "abc." + (now() + 600) + "." + newTokenId() + ".s",
+                "42.soon." + newTokenId() + ".s",
+                "42." + (now() + 600) + "." + newTokenId() + ".x",
+        };
+        for (String payload : payloads) {
+            assertNull(payload, service.verify(payload + "." + service.signature(payload)));
+        }
+    }
+
+    @Test
+    public void revokedIdsAreDenied() {
+        String revokedId = newTokenId();
+        String keptId = newTokenId();
+        long expiresAt = now() + 600;
+
+        service.applyRevocations(List.<Object[]>of(
+                new Object[]{revokedId, toLocalDateTime(expiresAt), LocalDateTime.now()}));
+
+        assertNull(service.verify(sign(42L, expiresAt, revokedId, false)));
+        assertNull(service.verify(sign(42L, expiresAt, revokedId, true)));
+        assertNotNull(service.verify(sign(42L, expiresAt, keptId, false)));
+    }
+
+    @Test
+    public void syncKeepsTheLatestRevocationAndPrunesExpiredIds() {
+        LocalDateTime earlier = LocalDateTime.of(9000, 1, 1, 0, 0);
+        LocalDateTime later = earlier.plusSeconds(1);
+        int before = denyListSize();
+
+        service.applyRevocations(List.of(
+                new Object[]{newTokenId(), toLocalDateTime(now() + 600), later},
+                new Object[]{newTokenId(), toLocalDateTime(now() - 600), earlier},
+                new Object[]{newTokenId(), toLocalDateTime(now() + 600), null}));
+
+        assertEquals(before + 2, denyListSize());
+        assertEquals(later.toString(), service.snapshot().get("syncedThrough"));
+
+        service.applyRevocations(Collections.emptyList());
+        assertEquals(later.toString(), service.snapshot().get("syncedThrough"));
+    }
+
+    private String sign(Long userId, long expiresAt, String tokenId, boolean rememberMe) {
+        return service.sign(new SessionTokenService.Claims(userId, expiresAt, tokenId, rememberMe));
+    }
+
+    private int denyListSize() {
+        return (Integer) service.snapshot().get("denyListSize");
+    }
+
+    private static String join(String... parts) {
+        return String.join(".", parts);
+    }
+
+    private static String newTokenId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private static long now() {
+        return Instant.now().getEpochSecond();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,156 @@
+package lk.esports.betting.utils;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Money and Odds against the BigDecimal formulas they replaced, row by row. The rows
+ * cover half-cent and half-basis-point ties, the stake and odds limits and the pool
+ * ratio caps.
+ */
+public class MoneyOddsTest {
+
+    private static final BigDecimal MIN_ODDS = new BigDecimal("1.01");
+    private static final BigDecimal MAX_ODDS = new BigDecimal("99.99");
+    private static final BigDecimal PAYOUT_RATE = new BigDecimal("0.95");
+
+    // stake, odds, expected payout
+    private static final String[][] PAYOUTS = {
+            {"1.00", "1.01", "1.01"},
+            {"1.00", "2.00", "2.00"},
+            {"0.01", "1.50", "0.02"},       // 0.015
+            {"0.03", "1.50", "0.05"},       // 0.045
+            {"0.05", "1.10", "0.06"},       // 0.055
+            {"1.25", "1.10", "1.38"},       // 1.375
+            {"2.50", "1.05", "2.63"},       // 2.625
+            {"10.01", "1.05", "10.51"},     // 10.5105
+            {"10.10", "1.25", "12.63"},     // 12.625
+            {"33.33", "1.50", "50.00"},     // 49.995
+            {"99.99", "1.50", "149.99"},    // 149.985
+            {"1.01", "1.01", "1.02"},       // 1.0201
+            {"1.00", "99.99", "99.99"},
+            {"10000.00", "1.01", "10100.00"},
+            {"10000.00", "1.95", "19500.00"},
+            {"10000.00", "99.99", "999900.00"},
+            {"9999.99", "99.99", "999899.00"}, // 999899.0001
+            {"9999.95", "1.03", "10299.95"},   // 10299.9485
+            {"9999.97", "1.50", "14999.96"},   // 14999.955
+    };
+
+    // total pool cents, team pool cents, expected odds
+    private static final long[][] POOLS = {
+            {0, 0, 200},
+            {1000, 0, 200},
+            {0, 1000, 200},
+            {2000, 1000, 190},
+            {1100, 1000, 105},              // 1.1 x 0.95 = 1.045
+            {1000, 1000, 101},              // 0.95 clamps to MIN
+            {3000, 1000, 285},
+            {3000, 2000, 143},              // 1.5 x 0.95 = 1.425
+            {10000, 3000, 317},             // 3.3333 x 0.95 = 3.166635
+            {7, 3, 222},                    // 2.3333 x 0.95 = 2.216635
+            {15, 7, 204},                   // 2.1429 x 0.95 = 2.035755
+            {100_000, 1, 9999},             // clamps to MAX
+            {1_000_000_000_000L, 1, 9999},  // raw ratio past the cap
+            {10526, 100, 9999},             // 105.26 x 0.95 = 99.997
+            {10525, 100, 9999},             // 105.25 x 0.95 = 99.9875
+            {10520, 100, 9994},             // 105.2 x 0.95 = 99.94
+    };
+
+    private static final String[] ODDS = {"1.01", "1.05", "1.50", "1.95", "2.00", "3.33", "10.00", "99.99"};
+
+    @Test
+    public void payoutsMatchBigDecimal() {
+        for (String[] row : PAYOUTS) {
+            BigDecimal stake = new BigDecimal(row[0]);
+            BigDecimal odds = new BigDecimal(row[1]);
+            BigDecimal expected = new BigDecimal(row[2]);
+            String label = row[0] + " x " + row[1];
+
+            assertEquals(label, expected, oldPayout(stake, odds));
+            assertEquals(label, expected,
+                    Money.toBigDecimal(Money.multiplyByOdds(Money.toCents(stake), Odds.fromBigDecimal(odds))));
+        }
+    }
+
+    @Test
+    public void poolOddsMatchBigDecimal() {
+        for (long[] row : POOLS) {
+            BigDecimal expected = BigDecimal.valueOf(row[2], 2);
+            String label = row[0] + "/" + row[1];
+
+            assertEquals(label, expected, oldPoolOdds(row[0], row[1]));
+            assertEquals(label, expected, Odds.toBigDecimal(Odds.fromPool(row[0], row[1])));
+        }
+    }
+
+    @Test
+    public void marginsMatchBigDecimal() {
+        for (String first : ODDS) {
+            for (String second : ODDS) {
+                BigDecimal[] odds = {new BigDecimal(first), new BigDecimal(second)};
+                long impliedProbSum = 0;
+                for (BigDecimal odd : odds) {
+                    impliedProbSum += Odds.impliedProbability(Odds.fromBigDecimal(odd));
+                }
+                BigDecimal margin = BigDecimal.valueOf((impliedProbSum - Odds.ONE) * 100, 4);
+
+                assertEquals(first + "/" + second, 0, oldMargin(odds).compareTo(margin));
+            }
+        }
+    }
+
+    @Test
+    public void centsRoundHalfUp() {
+        String[][] rows = {
+                {"0.005", "1"},
+                {"0.004", "0"},
+                {"1.235", "124"},
+                {"1.245", "125"},
+                {"-1.235", "-124"},
+                {"10000.00", "1000000"},
+        };
+        for (String[] row : rows) {
+            assertEquals(row[0], Long.parseLong(row[1]), Money.toCents(new BigDecimal(row[0])));
+        }
+    }
+
+    @Test
+    public void divideHalfUpRoundsTiesAwayFromZero() {
+        long[][] rows = {
+                {5, 10, 1},
+                {4, 10, 0},
+                {15, 10, 2},
+                {-5, 10, -1},
+                {-15, 10, -2},
+                {5, -10, -1},
+        };
+        for (long[] row : rows) {
+            assertEquals(row[0] + "/" + row[1], row[2], Money.divideHalfUp(row[0], row[1]));
+        }
+    }
+
+    private static BigDecimal oldPayout(BigDecimal stake, BigDecimal odds) {
+        return stake.multiply(odds).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal oldPoolOdds(long totalCents, long teamCents) {
+        if (totalCents <= 0 || teamCents <= 0) {
+            return new BigDecimal("2.00");
+        }
+        BigDecimal rawOdds = BigDecimal.valueOf(totalCents).divide(BigDecimal.valueOf(teamCents), 4, RoundingMode.HALF_UP);
+        return rawOdds.multiply(PAYOUT_RATE).max(MIN_ODDS).min(MAX_ODDS).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal oldMargin(BigDecimal[] odds) {
+        BigDecimal impliedProbSum = BigDecimal.ZERO;
+        for (BigDecimal odd : odds) {
+            impliedProbSum = impliedProbSum.add(BigDecimal.ONE.divide(odd, 4, RoundingMode.HALF_UP));
+        }
+        return impliedProbSum.subtract(BigDecimal.ONE).multiply(new BigDecimal("100"));
+    }
+}